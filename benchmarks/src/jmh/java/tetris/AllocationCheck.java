@@ -0,0 +1,94 @@
+package tetris;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Fails (exits 1) if a warmed up game allocates anything on the heap while it ticks.
+ * Not a benchmark, but it lives here with the rest of the performance checks and runs in `check`.
+ *
+ * The bot plays seeded games with everything the UI hooks up that doesn't need JavaFX:
+ * a ghost, a replay recorder, the profiler and Flight Recorder events. That way every tick goes
+ * through falling, input, locking, clearing and spawning, game over and starting again.
+ * Once the JIT has settled, the same games are played again while counting the bytes
+ * this thread allocates, which has to come out at zero.
+ *
+ * Usage: AllocationCheck [--games N] [--warmup N]
+ */
+public class AllocationCheck {
+	public static void main(String[] args) {
+		int games = 50;
+		int warmup = 300;
+		for(int i=0; i < args.length; ++i) {
+			switch(args[i]) {
+			case "--games":
+				games = Integer.parseInt(args[++i]);
+				break;
+			case "--warmup":
+				warmup = Integer.parseInt(args[++i]);
+				break;
+			default:
+				System.out.println("Usage: AllocationCheck [--games N] [--warmup N]");
+				System.exit(2);
+			}
+		}
+		
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if(!threads.isThreadAllocatedMemorySupported()) {
+			System.out.println("This JVM can't count allocated bytes, skipping");
+			return;
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+		
+		Game game = new Game();
+		game.setGhost(true);
+		game.setRecorder(new ReplayRecorder());
+		game.setProfiler(new Profiler());
+		GameEvents events = new GameEvents();
+		game.setEvents(events);
+		game.setListener(new GameListener() {
+			@Override
+			public void gameOver(int finalScore) {
+				events.gameOver(game);
+			}
+			@Override
+			public void blockSpawned() {
+				events.spawned(game);
+			}
+		});
+		Bot bot = new Bot(new Weights(), null);
+		
+		// The first pass also grows the recorder's buffer to fit the longest game
+		play(game, bot, warmup);
+		
+		// What reading the counter costs by itself, so it can be taken off
+		long before = threads.getCurrentThreadAllocatedBytes();
+		long overhead = threads.getCurrentThreadAllocatedBytes() - before;
+		
+		before = threads.getCurrentThreadAllocatedBytes();
+		long ticks = play(game, bot, games);
+		long allocated = threads.getCurrentThreadAllocatedBytes() - before - overhead;
+		
+		System.out.printf("%d ticks over %d games, %d bytes allocated (%.3f per tick)%n",
+				ticks, games, allocated, (double) allocated / ticks);
+		if(allocated > 0) {
+			System.out.println("FAILED: a warmed up tick should allocate nothing");
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Seeds 1 to `games`, so the measured pass replays games the warm up has already seen
+	 */
+	static long play(Game game, Bot bot, int games) {
+		long ticks = 0;
+		for(int g=0; g < games; ++g) {
+			game.start(1 + g % 100);
+			while(!game.isOver()) {
+				bot.play(game);
+				game.step();
+			}
+			ticks += game.getTick();
+		}
+		return ticks;
+	}
+}
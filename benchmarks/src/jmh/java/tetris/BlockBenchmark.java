@@ -0,0 +1,107 @@
+package tetris;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The moves a falling `Block` makes every tick, on an empty 10x20 board.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockBenchmark {
+	
+	@Param({"I", "T", "O"})
+	String type;
+	
+	Block block;
+	Block ghosted; // same again with the ghost showing
+	boolean left;
+	
+	@Setup
+	public void setup() {
+		block = new Block(BlockType.valueOf(type), new Board(10, 20));
+		block.paintTiles();
+		ghosted = new Block(BlockType.valueOf(type), new Board(10, 20));
+		ghosted.setGhost(true);
+	}
+	
+	@Benchmark
+	public boolean canLower() {
+		return block.canLower();
+	}
+	
+	@Benchmark
+	public Block lower() {
+		// go back to the top instead of landing
+		if(!block.canLower()) {
+			block.y = 1;
+		}
+		block.lower();
+		return block;
+	}
+	
+	@Benchmark
+	public Block move() {
+		// back and forth so it never sits against a wall
+		if(left) {
+			block.moveLeft();
+		}
+		else {
+			block.moveRight();
+		}
+		left = !left;
+		return block;
+	}
+	
+	@Benchmark
+	public Block rotate() {
+		block.rotate();
+		return block;
+	}
+	
+	@Benchmark
+	public Block hardDrop() {
+		block.y = 1;
+		block.hardDrop();
+		return block;
+	}
+	
+	/**
+	 * How hard drops used to work, one row and one repaint at a time
+	 */
+	@Benchmark
+	public Block hardDropByRows() {
+		block.y = 1;
+		while(block.canLower()) {
+			block.lower();
+		}
+		return block;
+	}
+	
+	@Benchmark
+	public Block moveWithGhost() {
+		if(left) {
+			ghosted.moveLeft();
+		}
+		else {
+			ghosted.moveRight();
+		}
+		left = !left;
+		return ghosted;
+	}
+}
@@ -0,0 +1,84 @@
+package tetris;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Locking and clearing on boards from 20 to 10,000 rows tall, with the same 8 row stack
+ * at the bottom of each. None of these should get slower as the board gets taller,
+ * only a taller stack should cost more.
+ *
+ * Every stack row is missing one cell, in the same column.
+ * `lockAndClear` adds a row on top of the stack, fills the hole in the bottom row and clears it,
+ * which leaves the board just as it was.
+ * `spawnAndDrop` drops a block from the top of the board onto the stack.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardSizeBenchmark {
+	static final int STACK = 8;
+	
+	@Param({"20", "200", "2000", "10000"})
+	int height;
+	
+	@Param({"10", "64"})
+	int width;
+	
+	Board board;
+	int hole;
+	int[] clearing = new int[4];
+	Block block;
+	
+	@Setup(Level.Trial)
+	public void fill() {
+		board = new Board(width, height);
+		hole = width / 2;
+		for(int y=height - STACK; y < height; ++y) {
+			addRow(y);
+		}
+		block = new Block(BlockType.T, board);
+	}
+	
+	private void addRow(int y) {
+		for(int x=0; x < width; ++x) {
+			if(x != hole) {
+				board.lock(x, y, BlockType.VALUES[x % 7].color());
+			}
+		}
+	}
+	
+	@Benchmark
+	public Board lockAndClear() {
+		addRow(board.stackTop() - 1);
+		board.lock(hole, height - 1, BlockType.I.color());
+		int count = board.fullRows(height - 1, height - 1, clearing);
+		board.clearRows(clearing, count);
+		return board;
+	}
+	
+	@Benchmark
+	public int spawnAndDrop() {
+		block.defineTiles();
+		block.paintTiles();
+		block.hardDrop();
+		int y = block.y;
+		block.blackOut();
+		return y;
+	}
+}
@@ -0,0 +1,61 @@
+package tetris;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * How long `Bot.decide()` takes for one block on a 10x20 board
+ * with a stack the bot built itself, on the caller's thread and on the common pool.
+ * With `cached` the bot has a transposition table, and since it's the same position
+ * every time, every placement after the first call is a hit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BotBenchmark {
+	
+	@Param({"false", "true"})
+	boolean parallel;
+	
+	@Param({"false", "true"})
+	boolean cached;
+	
+	Game game;
+	Bot bot;
+	
+	@Setup
+	public void setup() {
+		bot = new Bot(new Weights(), parallel ? ForkJoinPool.commonPool() : null,
+				cached ? new TranspositionTable(Bot.TABLE_BITS) : null);
+		
+		// let the bot play a while so there's something to search around
+		game = new Game();
+		game.start(42);
+		Bot builder = new Bot(new Weights(), null);
+		while(game.getBlocks() < 40 || game.getState() != GameState.FALLING) {
+			builder.play(game);
+			game.step();
+		}
+	}
+	
+	@Benchmark
+	public int decide() {
+		bot.decide(game.getBoard(), game.getCurrentBlock());
+		return bot.bestShift;
+	}
+}
@@ -0,0 +1,57 @@
+package tetris;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * What `Controller.breakCheck()` costs after a lock: scanning just the
+ * rows the block covers, against scanning the whole board.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BreakCheckBenchmark {
+	
+	Board board;
+	Block block;
+	int[] breakRows = new int[20];
+	
+	@Setup
+	public void setup() {
+		board = new Board(10, 20);
+		Random rand = new Random(42);
+		for(int y=8; y < 20; ++y) {
+			for(int x=0; x < 10; ++x) {
+				if(y % 3 == 0 || rand.nextBoolean()) {
+					board.lock(x, y, (byte) 1);
+				}
+			}
+		}
+		block = new Block(BlockType.I, board);
+		block.y = 7;
+	}
+	
+	@Benchmark
+	public int touchedRows() {
+		return board.fullRows(block.topRow(), block.bottomRow(), breakRows);
+	}
+	
+	@Benchmark
+	public int wholeBoard() {
+		return board.fullRows(0, board.getHeight() - 1, breakRows);
+	}
+}
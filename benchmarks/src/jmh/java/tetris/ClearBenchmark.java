@@ -0,0 +1,110 @@
+package tetris;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single-pass `Board.clearRows()` against the old way of resetting
+ * each row and calling dropHangingRows once per cleared row.
+ * The board is filled with a half-full stack, with `lines` full rows
+ * spread through the bottom of it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClearBenchmark {
+	
+	@Param({"20", "200", "2000"})
+	int height;
+	
+	@Param({"1", "4"})
+	int lines;
+	
+	Board board;
+	long[] startRows;
+	byte[] startCells;
+	int[] startTops;
+	int[] clearing;
+	
+	@Setup(Level.Trial)
+	public void fill() {
+		board = new Board(10, height);
+		Random rand = new Random(42);
+		clearing = new int[lines];
+		for(int i=0; i < lines; ++i) {
+			// every other row from the bottom up
+			clearing[lines - 1 - i] = height - 1 - 2*i;
+		}
+		
+		for(int y=4; y < height; ++y) {
+			boolean full = false;
+			for(int c: clearing) {
+				full |= c == y;
+			}
+			for(int x=0; x < 10; ++x) {
+				if(full || rand.nextBoolean()) {
+					board.lock(x, y, (byte) (1 + rand.nextInt(7)));
+				}
+			}
+		}
+		startRows = board.rows.clone();
+		startCells = board.cells.clone();
+		startTops = board.tops.clone();
+	}
+	
+	@Setup(Level.Invocation)
+	public void reset() {
+		System.arraycopy(startRows, 0, board.rows, 0, height);
+		System.arraycopy(startCells, 0, board.cells, 0, startCells.length);
+		System.arraycopy(startTops, 0, board.tops, 0, startTops.length);
+	}
+	
+	@Benchmark
+	public Board singlePass() {
+		board.clearRows(clearing, lines);
+		return board;
+	}
+	
+	@Benchmark
+	public Board rowByRow() {
+		for(int y: clearing) {
+			board.resetRow(y);
+		}
+		for(int y: clearing) {
+			dropHangingRows(board, y, 1);
+		}
+		return board;
+	}
+	
+	/**
+	 * What `Tetris.dropHangingRows` used to do, one cell at a time
+	 */
+	static void dropHangingRows(Board board, int yValue, int numRows) {
+		for(int y=yValue-1; y > 0; --y) {
+			for(int x=0; x < board.getWidth(); ++x) {
+				if(board.isTaken(x, y)) {
+					byte color = board.getColor(x, y);
+					board.rows[y] &= ~(1L << x);
+					board.paint(x, y, Board.EMPTY);
+					board.lock(x, y + numRows, color);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package tetris;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Whole games per second through the headless `Game` engine,
+ * with the same random key mashing `HeadlessRunner` uses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+	
+	Game game;
+	HeadlessRunner runner;
+	Random rand;
+	long seed;
+	
+	@Setup
+	public void setup() {
+		game = new Game();
+		runner = new HeadlessRunner();
+		rand = new Random(42);
+	}
+	
+	@Benchmark
+	public long fullGame() {
+		++seed;
+		game.start(seed);
+		rand.setSeed(seed);
+		runner.playRandom(game, rand);
+		return game.getTick();
+	}
+}
@@ -0,0 +1,119 @@
+package tetris;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The old leaderboard, which parsed the whole text scores file every time it opened,
+ * against loading a `ScoreIndex` from a `ScoreStore` once and reading the top scores out of it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LeaderboardBenchmark {
+	
+	@Param({"100", "10000", "100000"})
+	int lines;
+	
+	File scores;
+	File storeFile;
+	ScoreStore store;
+	ScoreIndex index;
+	Random rand = new Random(7);
+	
+	@Setup
+	public void writeScores() throws IOException {
+		scores = File.createTempFile("scores", ".txt");
+		storeFile = File.createTempFile("scores", ".bin");
+		storeFile.delete();
+		store = new ScoreStore(storeFile.getPath());
+		Random rand = new Random(42);
+		long time = 1_600_000_000_000L;
+		try(BufferedWriter out = new BufferedWriter(new FileWriter(scores))) {
+			for(int i=0; i < lines; ++i) {
+				int score = rand.nextInt(100000);
+				out.write("2020-11-17::12:00PM " + score + "\n");
+				time += 60_000;
+				store.append(time, score, 0, 0);
+			}
+		}
+		index = new ScoreIndex(6);
+		index.load(store, store.size());
+	}
+	
+	@TearDown
+	public void deleteScores() throws IOException {
+		store.close();
+		storeFile.delete();
+		scores.delete();
+	}
+	
+	/**
+	 * What opening the leaderboard used to cost
+	 */
+	@Benchmark
+	public List<Leaderboard.Entry> readEntries() {
+		List<Leaderboard.Entry> entries = legacyReadEntries(scores.getPath());
+		entries.sort(null);
+		return entries;
+	}
+	
+	@Benchmark
+	public ScoreIndex loadIndex() {
+		ScoreIndex fresh = new ScoreIndex(6);
+		fresh.load(store, store.size());
+		return fresh;
+	}
+	
+	/**
+	 * What opening the leaderboard costs now, should be flat in `lines`
+	 */
+	@Benchmark
+	public List<Leaderboard.Entry> openFromIndex() {
+		return index.top();
+	}
+	
+	@Benchmark
+	public List<Leaderboard.Entry> saveThenOpen() {
+		index.add(new Leaderboard.Entry("2020-11-17::12:00PM", rand.nextInt(100000)));
+		return index.top();
+	}
+	
+	/**
+	 * The leaderboard's old parser, kept here as the baseline
+	 */
+	static List<Leaderboard.Entry> legacyReadEntries(String filename) {
+		List<Leaderboard.Entry> entries = new ArrayList<>();
+		try(Scanner scanner = new Scanner(new File(filename))) {
+			while(scanner.hasNextLine()) {
+				entries.add(new Leaderboard.Entry(scanner.nextLine()));
+			}
+		} catch(Exception e) {
+			System.out.println(e.getMessage() + " in legacyReadEntries()");
+		}
+		return entries;
+	}
+}
@@ -0,0 +1,67 @@
+package tetris;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * How big a recorded bot game is, and how fast it plays back.
+ * Setup records one game and prints its size and length;
+ * divide the game's ticks / TICK_RATE by the playback time for the speed-up over real time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplayBenchmark {
+	
+	byte[] data;
+	Replay replay;
+	Game game;
+	
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		Game recording = new Game();
+		ReplayRecorder recorder = new ReplayRecorder();
+		recording.setRecorder(recorder);
+		Bot bot = new Bot(new Weights(), null);
+		recording.start(7);
+		// cap it, the bot can go for a very long time
+		while(!recording.isOver() && recording.getTick() < 200_000) {
+			bot.play(recording);
+			recording.step();
+		}
+		if(!recording.isOver()) {
+			recorder.finish(recording.getTick(), recording.getScore());
+		}
+		data = recorder.toByteArray();
+		replay = Replay.read(data);
+		game = new Game();
+		System.out.printf("%nreplay: %d bytes, %d inputs, %d ticks (%.0fs of play), %.2f bytes/input%n",
+				data.length, replay.getInputCount(), replay.getFinalTick(),
+				(double) replay.getFinalTick() / Game.TICK_RATE, (double) data.length / replay.getInputCount());
+	}
+	
+	@Benchmark
+	public int play() {
+		replay.play(game);
+		return game.getScore();
+	}
+	
+	@Benchmark
+	public Replay parse() throws Exception {
+		return Replay.read(data);
+	}
+}
@@ -0,0 +1,168 @@
+package tetris;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Table-driven `Block.rotate()` against the old list-of-tiles rotation.
+ * "open" rotates in the middle of the board, "wall" rotates an upright
+ * block pressed against the left wall (the old code gives up there).
+ * Every invocation starts from the same upright block, so they all do the same turn.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RotateBenchmark {
+	
+	@Param({"T", "I", "L"})
+	String type;
+	
+	@Param({"open", "wall"})
+	String spot;
+	
+	Block block;
+	LegacyBlock legacy;
+	int startX;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		BlockType blockType = BlockType.valueOf(type);
+		block = new Block(blockType, new Board(10, 20));
+		
+		// upright, so the next turn sticks out past the wall,
+		// and against the wall means the leftmost mino is in column 0
+		int left = 0;
+		for(int i=0; i < 4; ++i) {
+			left = Math.min(left, blockType.offsetX[1][i]);
+		}
+		startX = spot.equals("open") ? 4 : -left;
+		place();
+		
+		legacy = new LegacyBlock(blockType, block);
+	}
+	
+	@Setup(Level.Invocation)
+	public void reset() {
+		block.blackOut();
+		place();
+		legacy.reset(block);
+	}
+	
+	private void place() {
+		block.x = startX;
+		block.y = 10;
+		block.state = 1;
+		block.paintTiles();
+	}
+	
+	@Benchmark
+	public Block tables() {
+		block.rotate();
+		return block;
+	}
+	
+	@Benchmark
+	public LegacyBlock legacy() {
+		legacy.rotate();
+		return legacy;
+	}
+	
+	/**
+	 * The rotation from before the tables, minus JavaFX.
+	 * One object per cell with neighbor lookups, a fresh list per attempt,
+	 * and `contains()` to tell our own minos apart from the stack.
+	 */
+	static class LegacyBlock {
+		static class Cell {
+			int x;
+			int y;
+			boolean isTaken;
+			
+			Cell(int x, int y) {
+				this.x = x;
+				this.y = y;
+			}
+			
+			Cell getRotationTargetTile(Cell[][] grid, int pivotX, int pivotY) {
+				int targetX = pivotX - (y - pivotY);
+				int targetY = pivotY + (x - pivotX);
+				if(targetX > -1 && targetX < 10 && targetY > -1 && targetY < 20) {
+					return grid[targetX][targetY];
+				}
+				return null;
+			}
+		}
+		
+		Cell[][] grid = new Cell[10][20];
+		BlockType blockType;
+		List<Cell> tiles = new ArrayList<>();
+		
+		LegacyBlock(BlockType type, Block start) {
+			for(int x=0; x < 10; ++x) {
+				for(int y=0; y < 20; ++y) {
+					grid[x][y] = new Cell(x, y);
+				}
+			}
+			blockType = type;
+			reset(start);
+		}
+		
+		/**
+		 * Puts the tiles where `start`'s minos are
+		 */
+		void reset(Block start) {
+			for(Cell t: tiles) {
+				t.isTaken = false;
+			}
+			tiles = new ArrayList<>();
+			for(int i=0; i < 4; ++i) {
+				Cell cell = grid[start.minoX(i)][start.minoY(i)];
+				cell.isTaken = true;
+				tiles.add(cell);
+			}
+		}
+		
+		void rotate() {
+			if(blockType != BlockType.O) {
+				List<Cell> newTiles = new ArrayList<>();
+				Cell baseTile = tiles.get(0);
+				newTiles.add(baseTile);
+				
+				for(int i=1; i < 4; ++i) {
+					Cell targetTile = tiles.get(i).getRotationTargetTile(grid, baseTile.x, baseTile.y);
+					if(targetTile != null) {
+						if(!targetTile.isTaken || tiles.contains(targetTile)) {
+							newTiles.add(targetTile);
+						}
+					}
+				}
+				if(newTiles.size() == 4) {
+					for(Cell t: tiles) {
+						t.isTaken = false;
+					}
+					tiles = newTiles;
+					for(Cell t: tiles) {
+						t.isTaken = true;
+					}
+				}
+			}
+		}
+	}
+}
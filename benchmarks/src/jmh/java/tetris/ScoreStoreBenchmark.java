@@ -0,0 +1,79 @@
+package tetris;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * "Best scores this week" out of a `ScoreStore` with a growing history,
+ * through the sparse time index and by reading every record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoreStoreBenchmark {
+	static final long WEEK = 7L * 24 * 60 * 60 * 1000;
+	
+	@Param({"10000", "1000000"})
+	int games;
+	
+	File file;
+	ScoreStore store;
+	long lastWeek;
+	long now;
+	
+	@Setup
+	public void writeStore() throws IOException {
+		file = File.createTempFile("scores", ".bin");
+		file.delete();
+		store = new ScoreStore(file.getPath());
+		Random rand = new Random(42);
+		long time = 1_600_000_000_000L;
+		for(int i=0; i < games; ++i) {
+			time += rand.nextInt(10 * 60 * 1000); // a game every 5 minutes or so
+			store.append(time, rand.nextInt(100000), rand.nextInt(200), rand.nextInt(600000));
+		}
+		now = time;
+		lastWeek = now - WEEK;
+	}
+	
+	@TearDown
+	public void deleteStore() throws IOException {
+		store.close();
+		file.delete();
+	}
+	
+	@Benchmark
+	public List<Leaderboard.Entry> bestThisWeek() {
+		return store.best(lastWeek, now, 6);
+	}
+	
+	@Benchmark
+	public long scanThisWeek() {
+		long[] best = new long[1];
+		store.forEach(0, store.size(), (long time, int score, int lines, int durationMillis) -> {
+			if(time >= lastWeek && score > best[0]) {
+				best[0] = score;
+			}
+		});
+		return best[0];
+	}
+}
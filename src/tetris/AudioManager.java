@@ -0,0 +1,125 @@
+package tetris;
+
+import java.io.File;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javafx.scene.media.AudioClip;
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaPlayer;
+
+/**
+ * All the sound, on its own thread.
+ * The game just sends a `Command` (no allocation, never blocks), and this thread
+ * does the loading and playing. The music is streamed by one `MediaPlayer`
+ * that loops by itself, so nobody has to check whether it's still going.
+ * Sound effects are short, so they're decoded once and kept as `AudioClip`s.
+ * Any of the files can be missing, that sound just doesn't play.
+ */
+public class AudioManager {
+	// https://upload.wikimedia.org/wikipedia/commons/e/e5/Tetris_theme.ogg.mp3
+	static final String MUSIC = "Tetris_theme.mp3";
+	static final double MUSIC_VOLUME = 0.1;
+	static final double EFFECT_VOLUME = 0.3;
+	
+	public enum Command {
+		PLAY_MUSIC, PAUSE_MUSIC, STOP_MUSIC,
+		LOCK, LINE_CLEAR, TETRIS
+	}
+	
+	// Sound effect files, by `Command` ordinal (null for the music commands)
+	static final String[] EFFECTS = {
+			null, null, null,
+			"lock.wav", "clear.wav", "tetris.wav"
+	};
+	
+	final BlockingQueue<Command> commands;
+	final Thread thread;
+	MediaPlayer music;
+	AudioClip[] effects; // only ever one of each, so memory stays put however long we play
+	long dropped; // commands that didn't fit in the queue
+	
+	public AudioManager() {
+		commands = new ArrayBlockingQueue<>(32);
+		effects = new AudioClip[Command.values().length];
+		thread = new Thread(this::run, "audio");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Ask for a sound. Returns straight away, if the queue is somehow full the sound is skipped.
+	 */
+	public void send(Command command) {
+		if(!commands.offer(command)) {
+			++dropped;
+		}
+	}
+	
+	private void run() {
+		load();
+		try {
+			while(true) {
+				execute(commands.take());
+			}
+		} catch(InterruptedException e) {
+			System.out.println(e.getMessage() + " stopped the audio thread");
+		}
+	}
+	
+	/**
+	 * Opens the music and decodes every effect that exists
+	 */
+	void load() {
+		try {
+			File musicFile = new File(MUSIC);
+			if(musicFile.exists()) {
+				music = new MediaPlayer(new Media(musicFile.toURI().toString()));
+				music.setVolume(MUSIC_VOLUME);
+				music.setCycleCount(MediaPlayer.INDEFINITE);
+			}
+		} catch(Exception e) {
+			System.out.println(e.getMessage() + " loading " + MUSIC);
+		}
+		for(int i=0; i < EFFECTS.length; ++i) {
+			if(EFFECTS[i] == null) {
+				continue;
+			}
+			File file = new File(EFFECTS[i]);
+			if(!file.exists()) {
+				continue;
+			}
+			try {
+				effects[i] = new AudioClip(file.toURI().toString());
+				effects[i].setVolume(EFFECT_VOLUME);
+			} catch(Exception e) {
+				System.out.println(e.getMessage() + " loading " + EFFECTS[i]);
+			}
+		}
+	}
+	
+	void execute(Command command) {
+		switch(command) {
+		case PLAY_MUSIC:
+			if(music != null) {
+				music.play();
+			}
+			break;
+		case PAUSE_MUSIC:
+			if(music != null) {
+				music.pause();
+			}
+			break;
+		case STOP_MUSIC:
+			if(music != null) {
+				music.stop();
+			}
+			break;
+		default:
+			AudioClip clip = effects[command.ordinal()];
+			if(clip != null) {
+				clip.play();
+			}
+		}
+	}
+}
@@ -0,0 +1,250 @@
+package tetris;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Plays a big batch of seeded headless games across every core
+ * and reports score, line and block distributions, plus how throughput scales.
+ *
+ * Usage: BatchSimulator [--games N] [--seed S] [--threads 1,2,4,8] [--random] [--max-ticks T] [--width W] [--height H] [--weights FILE]
+ * Game i of a run uses seed S + i, so every thread count plays exactly the same games.
+ * Each fork-join task gets its own `Game` and `Bot`, and results are only merged on join.
+ * The one thing the threads share is a lock-free `TranspositionTable` of evaluation scores.
+ * Every bot has the same weights and an evaluation only depends on the board, so a hit
+ * gives the same score the bot would have worked out itself and the results stay seeded.
+ */
+public class BatchSimulator {
+	int games = 10000;
+	long seed = 1;
+	int[] threadCounts;
+	boolean random; // random keys instead of the bot
+	long maxTicks = 1_000_000;
+	Weights weights = new Weights();
+	TranspositionTable table; // one for every thread, they all have the same weights
+	int width = Board.DEFAULT_WIDTH;
+	int height = Board.DEFAULT_HEIGHT;
+	
+	public static void main(String[] args) {
+		BatchSimulator simulator = new BatchSimulator();
+		try {
+			simulator.parseArgs(args);
+		} catch(Exception e) {
+			System.out.println(e.getMessage() + " while reading arguments");
+			System.out.println("Usage: BatchSimulator [--games N] [--seed S] [--threads 1,2,4,8] [--random] [--max-ticks T] [--width W] [--height H] [--weights FILE]");
+			return;
+		}
+		simulator.run();
+	}
+	
+	public void parseArgs(String[] args) throws Exception {
+		for(int i=0; i < args.length; ++i) {
+			switch(args[i]) {
+			case "--games":
+				games = Integer.parseInt(args[++i]);
+				break;
+			case "--seed":
+				seed = Long.parseLong(args[++i]);
+				break;
+			case "--threads":
+				threadCounts = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+				break;
+			case "--random":
+				random = true;
+				break;
+			case "--max-ticks":
+				maxTicks = Long.parseLong(args[++i]);
+				break;
+			case "--weights":
+				weights = Weights.load(args[++i]);
+				break;
+			case "--width":
+				width = Integer.parseInt(args[++i]);
+				break;
+			case "--height":
+				height = Integer.parseInt(args[++i]);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown argument " + args[i]);
+			}
+		}
+		if(threadCounts == null) {
+			threadCounts = defaultThreadCounts(Runtime.getRuntime().availableProcessors());
+		}
+		if(Bot.TABLE_BITS > 0) {
+			table = new TranspositionTable(Bot.TABLE_BITS);
+		}
+	}
+	
+	/**
+	 * 1, 2, 4, ... up to (and including) the number of cores
+	 */
+	static int[] defaultThreadCounts(int cores) {
+		int count = 0;
+		for(int t=1; t < cores; t *= 2) {
+			++count;
+		}
+		int[] counts = new int[count + 1];
+		int t = 1;
+		for(int i=0; i < count; ++i) {
+			counts[i] = t;
+			t *= 2;
+		}
+		counts[count] = cores;
+		return counts;
+	}
+	
+	public void run() {
+		System.out.printf("%d games per run on %dx%d boards, seeds %d to %d, %s%n",
+				games, width, height, seed, seed + games - 1, random ? "random keys" : "bot");
+		System.out.printf("%8s %10s %12s %12s %8s%n", "threads", "seconds", "games/sec", "ticks/sec", "speedup");
+		
+		// Untimed pass first, otherwise the first thread count pays for the JIT warming up
+		ForkJoinPool warmup = new ForkJoinPool(threadCounts[threadCounts.length - 1]);
+		warmup.invoke(new Shard(seed, seed + Math.min(games, 200)));
+		warmup.shutdown();
+		
+		Results results = null;
+		double baseline = 0;
+		for(int threads: threadCounts) {
+			if(table != null) {
+				table.clear(); // every run starts cold, or later ones would look faster than they are
+			}
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			long startTime = System.nanoTime();
+			results = pool.invoke(new Shard(seed, seed + games));
+			double seconds = (System.nanoTime() - startTime) * 1.0e-9;
+			pool.shutdown();
+			
+			double gamesPerSec = games / seconds;
+			if(baseline == 0) {
+				baseline = gamesPerSec / threads;
+			}
+			System.out.printf("%8d %10.3f %12.1f %12.0f %8.2f%n",
+					threads, seconds, gamesPerSec, results.ticks / seconds, gamesPerSec / baseline);
+		}
+		
+		System.out.println();
+		System.out.printf("%8s %10s %10s %10s %10s %10s %10s%n", "", "mean", "min", "p50", "p90", "p99", "max");
+		printDistribution("score", results.scores, results.count);
+		printDistribution("lines", results.lines, results.count);
+		printDistribution("blocks", results.blocks, results.count);
+		if(table != null && !random) {
+			System.out.println();
+			System.out.println(table.summary());
+		}
+	}
+	
+	static void printDistribution(String name, int[] values, int count) {
+		int[] sorted = Arrays.copyOf(values, count);
+		Arrays.sort(sorted);
+		long sum = 0;
+		for(int v: sorted) {
+			sum += v;
+		}
+		System.out.printf("%8s %10.1f %10d %10d %10d %10d %10d%n", name, (double) sum / count,
+				sorted[0], percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99), sorted[count - 1]);
+	}
+	
+	static int percentile(int[] sorted, double p) {
+		int i = (int) Math.ceil(p * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, i))];
+	}
+	
+	/**
+	 * Plays one game on a thread-confined engine
+	 */
+	void play(Game game, Bot bot, Random rand, long gameSeed) {
+		game.start(gameSeed);
+		rand.setSeed(gameSeed);
+		while(!game.isOver() && game.getTick() < maxTicks) {
+			if(random) {
+				if(rand.nextInt(8) == 0) {
+					game.offer(Input.VALUES[rand.nextInt(Input.VALUES.length)], game.getTick());
+				}
+			}
+			else {
+				bot.play(game);
+			}
+			game.step();
+		}
+	}
+	
+	/**
+	 * A range of seeds. Splits in half until it's small enough to just play,
+	 * so idle threads can steal the other half.
+	 */
+	class Shard extends RecursiveTask<Results> {
+		private static final long serialVersionUID = 1L;
+		static final int LEAF_SIZE = 16;
+		long from;
+		long to;
+		
+		Shard(long from, long to) {
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected Results compute() {
+			if(to - from <= LEAF_SIZE) {
+				Game game = new Game(width, height);
+				Bot bot = new Bot(weights, null, table); // already parallel across games, so search on this thread
+				Random rand = new Random();
+				Results results = new Results((int) (to - from));
+				for(long s=from; s < to; ++s) {
+					play(game, bot, rand, s);
+					results.add(game);
+				}
+				return results;
+			}
+			long middle = (from + to) >>> 1;
+			Shard left = new Shard(from, middle);
+			left.fork();
+			Results right = new Shard(middle, to).compute();
+			return left.join().merge(right);
+		}
+	}
+	
+	/**
+	 * Per-game numbers from a shard. Only ever touched by one thread until it's merged.
+	 */
+	static class Results {
+		int count;
+		long ticks;
+		int[] scores;
+		int[] lines;
+		int[] blocks;
+		
+		Results(int capacity) {
+			scores = new int[capacity];
+			lines = new int[capacity];
+			blocks = new int[capacity];
+		}
+		
+		void add(Game game) {
+			scores[count] = game.getScore();
+			lines[count] = game.getLines();
+			blocks[count] = game.getBlocks();
+			ticks += game.getTick();
+			++count;
+		}
+		
+		Results merge(Results other) {
+			Results merged = new Results(count + other.count);
+			merged.append(this);
+			merged.append(other);
+			return merged;
+		}
+		
+		private void append(Results other) {
+			System.arraycopy(other.scores, 0, scores, count, other.count);
+			System.arraycopy(other.lines, 0, lines, count, other.count);
+			System.arraycopy(other.blocks, 0, blocks, count, other.count);
+			ticks += other.ticks;
+			count += other.count;
+		}
+	}
+}
@@ -1,12 +1,5 @@
 package tetris;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-
-import javafx.scene.paint.Color;
-
 /**
  * The bookkeeping for tetriminos.
  * I refuse to type tetrimino again, so `Block` will do.
@@ -14,11 +7,26 @@ import javafx.scene.paint.Color;
  *
  */
 public class Block {
-	Color color;
+	Board board;
+	byte color; // palette index, see `Tile.PALETTE`
 	BlockType blockType;
-	List<Tile> tiles; // tile[0] is the base tile
+	int x; // <x,y> of the base mino, the rest come from the `BlockType` tables
+	int y;
+	int state; // rotation state, 0-3
+	boolean ghost; // show where it'll land?
+	int ghostY; // where the base mino lands, kept up to date by `moveTo`
+	
+	public Block(BlockType type, Board board) {
+		this.board = board;
+		reset(type);
+	}
 	
-	public Block(BlockType type) {
+	/**
+	 * Turns this into a fresh block of `type` in the starting position,
+	 * so `Game` can keep dealing the same object instead of making a new one per block.
+	 * Doesn't paint anything.
+	 */
+	public void reset(BlockType type) {
 		blockType = type;
 		defineColor();
 		defineTiles();
@@ -28,93 +36,101 @@ public class Block {
 	 * Sets the color of the block
 	 */
 	public void defineColor() {
-		switch(blockType) {
-		case I:
-			color = Color.CYAN;
-			break;
-		case O:
-			color = Color.YELLOW;
-			break;
-		case T:
-			color = Color.PURPLE;
-			break;
-		case S:
-			color = Color.GREEN;
-			break;
-		case Z:
-			color = Color.RED;
-			break;
-		case J:
-			color = Color.BLUE;
-			break;
-		case L:
-			color = Color.ORANGE;
-			break;
-		}
+		color = blockType.color();
 	}
 	
 	/**
-	 * Sets the owned tiles of the block
+	 * Puts the block in its starting position, in the middle of the top row
 	 */
 	public void defineTiles() {
-		tiles = new ArrayList<>();
-		Tile baseTile = Tetris.tiles[4][0];
-		tiles.add(baseTile);
-		
-		switch(blockType) {
-		case I:
-			tiles.add(Tetris.tiles[3][0]);
-			tiles.add(Tetris.tiles[5][0]);
-			tiles.add(Tetris.tiles[6][0]);
-			break;
-		case O:
-			tiles.add(Tetris.tiles[4][1]);
-			tiles.add(Tetris.tiles[5][0]);
-			tiles.add(Tetris.tiles[5][1]);
-			break;
-		case T:
-			tiles.add(Tetris.tiles[3][0]);
-			tiles.add(Tetris.tiles[5][0]);
-			tiles.add(Tetris.tiles[4][1]);
-			break;
-		case S:
-			tiles.add(Tetris.tiles[3][1]);
-			tiles.add(Tetris.tiles[4][1]);
-			tiles.add(Tetris.tiles[5][0]);
-			break;
-		case Z:
-			tiles.add(Tetris.tiles[3][0]);
-			tiles.add(Tetris.tiles[4][1]);
-			tiles.add(Tetris.tiles[5][1]);
-			break;
-		case J:
-			tiles.add(Tetris.tiles[3][0]);
-			tiles.add(Tetris.tiles[5][0]);
-			tiles.add(Tetris.tiles[5][1]);
-			break;
-		case L:
-			tiles.add(Tetris.tiles[3][0]);
-			tiles.add(Tetris.tiles[3][1]);
-			tiles.add(Tetris.tiles[5][0]);
-			break;
+		x = board.width / 2 - 1;
+		y = 0;
+		state = 0;
+	}
+	
+	/**
+	 * x coordinate of mino i
+	 */
+	public int minoX(int i) {
+		return x + blockType.offsetX[state][i];
+	}
+	
+	/**
+	 * y coordinate of mino i
+	 */
+	public int minoY(int i) {
+		return y + blockType.offsetY[state][i];
+	}
+	
+	/**
+	 * The highest row this block covers
+	 */
+	public int topRow() {
+		int top = minoY(0);
+		for(int i=1; i < 4; ++i) {
+			top = Math.min(top, minoY(i));
+		}
+		return top;
+	}
+	
+	/**
+	 * The lowest row this block covers
+	 */
+	public int bottomRow() {
+		int bottom = minoY(0);
+		for(int i=1; i < 4; ++i) {
+			bottom = Math.max(bottom, minoY(i));
 		}
+		return bottom;
+	}
+	
+	/**
+	 * Turns the ghost (the outline of where the block will land) on or off
+	 */
+	public void setGhost(boolean ghost) {
+		blackOut();
+		this.ghost = ghost;
+		paintTiles();
 	}
 	
 	/**
-	 * Changes member tiles to display the color of this block
+	 * Changes member cells to display the color of this block,
+	 * and the ghost cells to show where it'll land
 	 */
 	public void paintTiles() {
-		for(Tile t: tiles) {
-			t.setColor(color);
+		if(ghost) {
+			ghostY = landingY(board, blockType, state, x, y);
+			int[] offsetY = blockType.offsetY[state];
+			for(int i=0; i < 4; ++i) {
+				board.paint(minoX(i), ghostY + offsetY[i], Board.GHOST);
+			}
+		}
+		for(int i=0; i < 4; ++i) {
+			board.paint(minoX(i), minoY(i), color);
 		}
 	}
 	
 	/**
-	 * Blackout all member tiles
+	 * Blackout all member cells (and the ghost)
 	 */
 	public void blackOut() {
-		for(Tile t: tiles) {
-			t.blackOut();
+		if(ghost) {
+			int[] offsetY = blockType.offsetY[state];
+			for(int i=0; i < 4; ++i) {
+				board.paint(minoX(i), ghostY + offsetY[i], Board.EMPTY);
+			}
+		}
+		for(int i=0; i < 4; ++i) {
+			board.paint(minoX(i), minoY(i), Board.EMPTY);
+		}
+	}
+	
+	/**
+	 * Locks the block into the board where it is
+	 */
+	public void lock() {
+		for(int i=0; i < 4; ++i) {
+			board.lock(minoX(i), minoY(i), color);
 		}
 	}
 	
@@ -122,145 +138,132 @@ public class Block {
 	 * Tells you if lowering the block is legal
 	 */
 	public boolean canLower() {
-		boolean canLower = true;
-		
-		for(Tile t: tiles) {
-			Tile lowerTile = t.getS();
-			if(lowerTile == null) {
-				canLower = false;
-				break;
-			}
-			if(lowerTile.isTaken()) {
-				/* it's OK if the lowerTile is taken, as long
-				   as it's taken by THIS block */
-				if(!tiles.contains(lowerTile)) {
-					canLower = false;
-					break;
-				}
-			}
-		}
-		
-		return canLower;
+		return fits(state, x, y + 1);
 	}
 	
 	/**
 	 * Drops the block 1 increment
 	 */
 	public void lower() {
-		blackOut();
-		
-		for(int i=0; i < 4; ++i) {
-			// for each tile, swap it with the one beneath
-			Tile current = tiles.get(i);
-			Tile next = current.getS();
-			tiles.set(i, next);
-		}
-		
-		paintTiles();
+		moveTo(state, x, y + 1);
 	}
 	
 	/**
-	 * Drops the block all the way down
+	 * Drops the block all the way down, in one move
 	 */
 	public void hardDrop() {
-		while(canLower()) {
-			lower();
+		int landY = landingY(board, blockType, state, x, y);
+		if(landY != y) {
+			moveTo(state, x, landY);
 		}
 	}
 	
 	/**
-	 * Rotate the block 90 degrees.
-	 * If rotating 90 degrees isn't possible, rotate again.
+	 * Where the base mino of a block of `type` at <x,y> in `state` ends up if it drops straight down.
+	 * If every mino is above the top of its column, that's just the smallest gap
+	 * between a mino and its column's top, four lookups instead of a row by row fall.
+	 * Tucked under an overhang, it has to fall row by row.
+	 */
+	static int landingY(Board board, BlockType type, int state, int x, int y) {
+		int[] offsetX = type.offsetX[state];
+		int[] offsetY = type.offsetY[state];
+		int drop = board.height;
+		for(int i=0; i < 4; ++i) {
+			int gap = board.tops[x + offsetX[i]] - 1 - (y + offsetY[i]);
+			if(gap < 0) {
+				// under an overhang
+				int landY = y;
+				while(fits(board, type, state, x, landY + 1)) {
+					++landY;
+				}
+				return landY;
+			}
+			drop = Math.min(drop, gap);
+		}
+		return y + drop;
+	}
+	
+	/**
+	 * Rotate the block 90 degrees clockwise.
+	 * If it doesn't fit where it is, try each of the wall kicks in turn.
 	 */
 	public void rotate() {
 		// Only bother if the block isn't an O
 		if(blockType != BlockType.O) {
-			List<Tile> newTiles = new ArrayList<>();
-			
-			// Use the baseTile as a pivot
-			Tile baseTile = tiles.get(0);
-			newTiles.add(baseTile);
-			
-			for(int i=1; i < 4; ++i) {
-				Tile curr = tiles.get(i);
-				Tile targetTile = curr.getRotationTargetTile(baseTile.x, baseTile.y);
-				if(targetTile != null) {
-					if(!targetTile.isTaken()) {
-						newTiles.add(targetTile);
-					}
-					else {
-						// if the tile is taken by one of our blocks, it's still OK
-						if(tiles.contains(targetTile)) {
-							newTiles.add(targetTile);
-						}
-					}
-				}
+			int k = findKick(board, blockType, state, x, y);
+			if(k >= 0) {
+				moveTo((state + 1) & 3, x + blockType.kickX[state][k], y + blockType.kickY[state][k]);
 			}
-			//if we can rotate all of the tiles, then do it
-			if(newTiles.size() == 4) {
-				blackOut();
-				tiles = newTiles;
-				paintTiles();
+		}
+	}
+	
+	/**
+	 * Which wall kick a block of `type` at <x,y> in `state` would use to rotate clockwise,
+	 * or -1 if none of them fit.
+	 */
+	static int findKick(Board board, BlockType type, int state, int x, int y) {
+		int nextState = (state + 1) & 3;
+		int[] kickX = type.kickX[state];
+		int[] kickY = type.kickY[state];
+		
+		for(int k=0; k < kickX.length; ++k) {
+			if(fits(board, type, nextState, x + kickX[k], y + kickY[k])) {
+				return k;
 			}
 		}
+		return -1;
 	}
 	
 	/**
 	 * Move the block left if it is possible to do so
 	 */
 	public void moveLeft() {
-		move("left");
+		move(-1);
 	}
 	
 	/**
 	 * Move the block right if it is possible to do so
 	 */
 	public void moveRight() {
-		move("right");
+		move(1);
 	}
-	private void move(String direction) {
-		List<Tile> newTiles = new ArrayList<>();
-		
-		// Check to the `direction` of each of our current tiles
-		for(Tile t: tiles) {
-			Tile adjacentTile = null;
-			if(direction.equals("left")) {
-				adjacentTile = t.getW();
-			}
-			else {
-				adjacentTile = t.getE();
-			}
-			
-			if(adjacentTile != null) {
-				if(!adjacentTile.isTaken()) {
-					newTiles.add(adjacentTile);
-				}
-				else {
-					// if the tile is taken by one of our blocks, it's ok
-					if(tiles.contains(adjacentTile)) {
-						newTiles.add(adjacentTile);
-					}
-				}
-			}
-		}
-		// If our new block would be of size 4, then we move
-		if(newTiles.size() == 4) {
-			blackOut();
-			tiles = newTiles;
-			paintTiles();
+	private void move(int xChange) {
+		if(fits(state, x + xChange, y)) {
+			moveTo(state, x + xChange, y);
 		}
 	}
 	
 	/**
-	 *  Provides a set of the x coordinates belonging to this block
+	 * Return true if every mino would be free with the base mino
+	 * at <newX,newY> in rotation state `newState`
 	 */
-	public Set<Integer> getXValues() {
-		Set<Integer> xValues = new HashSet<Integer>();
-		
-		for(Tile t: tiles) {
-			xValues.add(t.x);
+	private boolean fits(int newState, int newX, int newY) {
+		return fits(board, blockType, newState, newX, newY);
+	}
+	
+	/**
+	 * Return true if a block of `type` would fit on `board`
+	 * with its base mino at <newX,newY> in rotation state `newState`
+	 */
+	static boolean fits(Board board, BlockType type, int newState, int newX, int newY) {
+		int[] offsetX = type.offsetX[newState];
+		int[] offsetY = type.offsetY[newState];
+		for(int i=0; i < 4; ++i) {
+			if(!board.isFree(newX + offsetX[i], newY + offsetY[i])) {
+				return false;
+			}
 		}
-		
-		return xValues;
+		return true;
+	}
+	
+	/**
+	 * Moves the block and repaints
+	 */
+	private void moveTo(int newState, int newX, int newY) {
+		blackOut();
+		state = newState;
+		x = newX;
+		y = newY;
+		paintTiles();
 	}
 }
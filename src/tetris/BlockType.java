@@ -1,11 +1,93 @@
 package tetris;
 
+/**
+ * The seven tetriminos, along with their rotation tables.
+ * Everything here is worked out once when the class loads,
+ * so rotating a block is just a few table reads.
+ */
 public enum BlockType {
-	I,
-	O,
-	T,
-	S,
-	Z,
-	J,
-	L
+	// Spawn offsets of each mino from the base mino (which is the pivot)
+	I(Kicks.I, 0,0, -1,0, 1,0, 2,0),
+	O(Kicks.NONE, 0,0, 0,1, 1,0, 1,1),
+	T(Kicks.JLSTZ, 0,0, -1,0, 1,0, 0,1),
+	S(Kicks.JLSTZ, 0,0, -1,1, 0,1, 1,0),
+	Z(Kicks.JLSTZ, 0,0, -1,0, 0,1, 1,1),
+	J(Kicks.JLSTZ, 0,0, -1,0, 1,0, 1,1),
+	L(Kicks.JLSTZ, 0,0, -1,0, -1,1, 1,0);
+	
+	// values() makes a new array every call, so hand this one out instead
+	static final BlockType[] VALUES = values();
+	
+	// offsetX[state][i], offsetY[state][i] is mino i in rotation state 0-3
+	final int[][] offsetX;
+	final int[][] offsetY;
+	// kickX[state][k], kickY[state][k] is the k-th shift to try when rotating out of `state`
+	final int[][] kickX;
+	final int[][] kickY;
+	
+	BlockType(int[][] kicks, int... spawn) {
+		offsetX = new int[4][4];
+		offsetY = new int[4][4];
+		for(int i=0; i < 4; ++i) {
+			offsetX[0][i] = spawn[2*i];
+			offsetY[0][i] = spawn[2*i + 1];
+		}
+		// Each state is the last one turned 90 degrees clockwise around the base mino
+		// swap x&y, negate x (refer to notebook if you must)
+		// An O looks the same every way up, so it just keeps its spawn offsets
+		boolean spins = kicks != Kicks.NONE;
+		for(int state=1; state < 4; ++state) {
+			for(int i=0; i < 4; ++i) {
+				offsetX[state][i] = spins ? -offsetY[state-1][i] : offsetX[0][i];
+				offsetY[state][i] = spins ? offsetX[state-1][i] : offsetY[0][i];
+			}
+		}
+		
+		kickX = new int[4][];
+		kickY = new int[4][];
+		for(int state=0; state < 4; ++state) {
+			int[] tests = kicks[state];
+			kickX[state] = new int[tests.length / 2];
+			kickY[state] = new int[tests.length / 2];
+			for(int k=0; k < tests.length / 2; ++k) {
+				kickX[state][k] = tests[2*k];
+				// SRS tables count y upwards, ours counts down
+				kickY[state][k] = -tests[2*k + 1];
+			}
+		}
+	}
+	
+	/**
+	 * The palette index this block is drawn with (0 is reserved for empty)
+	 */
+	public byte color() {
+		return (byte) (ordinal() + 1);
+	}
+	
+	/**
+	 * SRS wall kicks for clockwise rotations, as <x,y> pairs.
+	 * https://tetris.wiki/Super_Rotation_System
+	 * Row n is for rotating out of state n (0 -> R, R -> 2, 2 -> L, L -> 0).
+	 */
+	static class Kicks {
+		static final int[][] JLSTZ = {
+				{0,0, -1,0, -1,1, 0,-2, -1,-2},
+				{0,0, 1,0, 1,-1, 0,2, 1,2},
+				{0,0, 1,0, 1,1, 0,-2, 1,-2},
+				{0,0, -1,0, -1,-1, 0,2, -1,2}
+		};
+		static final int[][] I = {
+				{0,0, -2,0, 1,0, -2,-1, 1,2},
+				{0,0, -1,0, 2,0, -1,2, 2,-1},
+				{0,0, 2,0, -1,0, 2,1, -1,-2},
+				{0,0, 1,0, -2,0, 1,-2, -2,1}
+		};
+		// The O block doesn't rotate
+		static final int[][] NONE = {
+				{0,0},
+				{0,0},
+				{0,0},
+				{0,0}
+		};
+	}
 }
@@ -0,0 +1,334 @@
+package tetris;
+
+import java.util.Arrays;
+
+/**
+ * Headless model of the Play Area.
+ * Every row is a bitmask of locked cells (bit x is set when <x,y> is taken),
+ * and a parallel array holds the palette index shown in every cell.
+ * Nothing in here touches JavaFX, the `Tile` grid just listens for changes.
+ */
+public class Board {
+	public static final byte EMPTY = 0; // black
+	public static final byte FLASH = 8; // white, shown while a row is breaking
+	public static final byte GHOST = 9; // grey, where the falling block will land
+	
+	public static final int DEFAULT_WIDTH = 10;
+	public static final int DEFAULT_HEIGHT = 20;
+	// A row is one long, and an I block standing up needs 4 rows.
+	// Heights stop where a short does, so they fit in `Protocol` messages.
+	public static final int MIN_SIZE = 4;
+	public static final int MAX_WIDTH = 64;
+	public static final int MAX_HEIGHT = Short.MAX_VALUE;
+	
+	int width;
+	int height;
+	long fullRow; // what a row looks like when every cell is taken
+	long[] rows; // locked cells, one bitmask per row
+	byte[] cells; // palette index of <x,y> lives at cells[y * width + x]
+	int[] tops; // the highest locked row in each column (the height if it's empty)
+	long hash; // `Zobrist` keys of every locked cell XORed together
+	
+	BoardListener listener;
+	
+	// Cells that changed since the last `takeChanges()`, once each, only kept while tracking
+	boolean tracking;
+	int[] changed;
+	int changedCount;
+	int[] changedStamp; // changedStamp[i] == stamp when cell i is already in `changed`
+	int stamp = 1;
+	
+	public Board(int width, int height) {
+		if(width < MIN_SIZE || width > MAX_WIDTH || height < MIN_SIZE || height > MAX_HEIGHT) {
+			throw new IllegalArgumentException("Board can't be " + width + "x" + height
+					+ " (" + MIN_SIZE + "-" + MAX_WIDTH + " wide, " + MIN_SIZE + "-" + MAX_HEIGHT + " high)");
+		}
+		this.width = width;
+		this.height = height;
+		fullRow = width == 64 ? -1L : (1L << width) - 1; // 1L << 64 is just 1
+		rows = new long[height];
+		cells = new byte[width * height];
+		tops = new int[width];
+		Arrays.fill(tops, height);
+	}
+	
+	public int getWidth() {
+		return width;
+	}
+	public int getHeight() {
+		return height;
+	}
+	
+	public void setListener(BoardListener listener) {
+		this.listener = listener;
+	}
+	
+	/**
+	 * Start (or stop) remembering which cells change, for `SpectatorBroadcaster`
+	 */
+	public void setTracking(boolean tracking) {
+		this.tracking = tracking;
+		if(tracking && changed == null) {
+			changed = new int[width * height];
+			changedStamp = new int[width * height];
+		}
+		changedCount = 0;
+		++stamp;
+	}
+	
+	/**
+	 * How many cells changed since the last call, their indices (y * width + x)
+	 * are in the first that many entries of `getChanges()`. Starts a new list.
+	 */
+	public int takeChanges() {
+		int count = changedCount;
+		changedCount = 0;
+		++stamp;
+		return count;
+	}
+	
+	public int[] getChanges() {
+		return changed;
+	}
+	
+	public byte[] getCells() {
+		return cells;
+	}
+	
+	/**
+	 * Return true if <x,y> is on the board
+	 */
+	public boolean inRange(int x, int y) {
+		return x > -1 && x < width && y > -1 && y < height;
+	}
+	
+	/**
+	 * Return true if <x,y> holds a locked cell
+	 */
+	public boolean isTaken(int x, int y) {
+		return (rows[y] & (1L << x)) != 0;
+	}
+	
+	/**
+	 * Return true if a mino could sit at <x,y>
+	 * (it's on the board and nothing is locked there)
+	 */
+	public boolean isFree(int x, int y) {
+		return inRange(x, y) && (rows[y] & (1L << x)) == 0;
+	}
+	
+	/**
+	 * Return true if every cell of row y is taken
+	 */
+	public boolean isRowFull(int y) {
+		return rows[y] == fullRow;
+	}
+	
+	/**
+	 * Zobrist hash of which cells are locked (not their colors), kept up to date on every lock and clear
+	 */
+	public long getHash() {
+		return hash;
+	}
+	
+	/**
+	 * The same hash worked out from scratch, for checking `getHash()`
+	 */
+	public long computeHash() {
+		long h = 0;
+		for(int y=0; y < height; ++y) {
+			h ^= Zobrist.row(y, width, rows[y]);
+		}
+		return h;
+	}
+	
+	/**
+	 * The highest locked row in column x, or the height if there's nothing in it
+	 */
+	public int columnTop(int x) {
+		return tops[x];
+	}
+	
+	/**
+	 * The highest row with anything locked in it (the height if the board is empty)
+	 */
+	public int stackTop() {
+		int top = height;
+		for(int x=0; x < width; ++x) {
+			top = Math.min(top, tops[x]);
+		}
+		return top;
+	}
+	
+	public byte getColor(int x, int y) {
+		return cells[y * width + x];
+	}
+	
+	/**
+	 * Changes what <x,y> displays without locking it.
+	 * Used for the falling block and for break flashes.
+	 */
+	public void paint(int x, int y, byte color) {
+		int i = y * width + x;
+		if(cells[i] != color) {
+			cells[i] = color;
+			notifyCell(x, y, color);
+		}
+	}
+	
+	/**
+	 * Locks <x,y> in place with the given color
+	 */
+	public void lock(int x, int y, byte color) {
+		if((rows[y] & (1L << x)) == 0) {
+			hash ^= Zobrist.cell(y * width + x);
+		}
+		rows[y] |= 1L << x;
+		if(y < tops[x]) {
+			tops[x] = y;
+		}
+		paint(x, y, color);
+	}
+	
+	/**
+	 * Empties the whole board.
+	 * Every cell is reported, so the view forgets whatever it showed before.
+	 */
+	public void clear() {
+		Arrays.fill(tops, height);
+		hash = 0;
+		for(int y=0; y < height; ++y) {
+			rows[y] = 0;
+			for(int x=0; x < width; ++x) {
+				cells[y * width + x] = EMPTY;
+				notifyCell(x, y, EMPTY);
+			}
+		}
+	}
+	
+	/**
+	 * Show row y as breaking (the row stays locked until `resetRow`)
+	 */
+	public void flashRow(int y) {
+		for(int x=0; x < width; ++x) {
+			paint(x, y, FLASH);
+		}
+	}
+	
+	/**
+	 * Empties row y
+	 */
+	public void resetRow(int y) {
+		hash ^= Zobrist.row(y, width, rows[y]);
+		rows[y] = 0;
+		for(int x=0; x < width; ++x) {
+			paint(x, y, EMPTY);
+			if(tops[x] == y) {
+				tops[x] = scanTop(x, y + 1);
+			}
+		}
+	}
+	
+	/**
+	 * Puts the full rows between fromY and toY (inclusive) into `out`, top to bottom.
+	 * Only the rows a block just locked into can have filled up,
+	 * so that's all we look at. Returns how many there were.
+	 */
+	public int fullRows(int fromY, int toY, int[] out) {
+		int count = 0;
+		for(int y=fromY; y <= toY; ++y) {
+			if(isRowFull(y)) {
+				out[count] = y;
+				++count;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Removes the given rows (sorted top to bottom) and drops
+	 * everything above them into place in a single pass,
+	 * however many rows there are.
+	 * Nothing above the stack moves, so the work is the rows from the top of the stack down to
+	 * the lowest cleared one, however tall the board is.
+	 */
+	public void clearRows(int[] clearing, int count) {
+		if(count == 0) {
+			return;
+		}
+		int top = stackTop();
+		
+		// Walk upwards from the lowest cleared row, copying each surviving
+		// row down to the next free slot and skipping the cleared ones
+		int next = count - 1; // next cleared row to skip
+		int write = clearing[next];
+		for(int read=write; read >= top; --read) {
+			if(next >= 0 && read == clearing[next]) {
+				--next;
+				continue;
+			}
+			copyRow(read, write);
+			--write;
+		}
+		// The top `count` rows of the old stack are empty now
+		for(; write >= top; --write) {
+			hash ^= Zobrist.row(write, width, rows[write]);
+			rows[write] = 0;
+			for(int x=0; x < width; ++x) {
+				paint(x, write, EMPTY);
+			}
+		}
+		
+		// A column topped out above every cleared row just drops by `count`.
+		// One that topped out among them has to look again (nothing lands higher than it was),
+		// and below them nothing moved.
+		int first = clearing[0];
+		int last = clearing[count - 1];
+		for(int x=0; x < width; ++x) {
+			if(tops[x] < first) {
+				tops[x] += count;
+			}
+			else if(tops[x] <= last) {
+				tops[x] = scanTop(x, tops[x]);
+			}
+		}
+	}
+	
+	/**
+	 * The first locked row in column x at or below `fromY`
+	 */
+	private int scanTop(int x, int fromY) {
+		long bit = 1L << x;
+		for(int y=fromY; y < height; ++y) {
+			if((rows[y] & bit) != 0) {
+				return y;
+			}
+		}
+		return height;
+	}
+	
+	/**
+	 * Makes row `to` a copy of row `from`
+	 */
+	private void copyRow(int from, int to) {
+		hash ^= Zobrist.row(to, width, rows[to]) ^ Zobrist.row(to, width, rows[from]);
+		rows[to] = rows[from];
+		for(int x=0; x < width; ++x) {
+			paint(x, to, cells[from * width + x]);
+		}
+	}
+	
+	private void notifyCell(int x, int y, byte color) {
+		if(tracking) {
+			int i = y * width + x;
+			if(changedStamp[i] != stamp) {
+				changedStamp[i] = stamp;
+				changed[changedCount] = i;
+				++changedCount;
+			}
+		}
+		if(listener != null) {
+			listener.cellChanged(x, y, color);
+		}
+	}
+}
@@ -0,0 +1,8 @@
+package tetris;
+
+/**
+ * Gets told whenever a cell of a `Board` changes what it displays.
+ */
+public interface BoardListener {
+	void cellChanged(int x, int y, byte color);
+}
@@ -0,0 +1,328 @@
+package tetris;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Plays a `Game` by itself.
+ * When a block spawns it tries every rotation and every column the block can reach
+ * (rotate where it spawned, slide sideways, drop), scores the board each one leaves
+ * with `Weights`, and sends the keys for the best one through the game's input queue
+ * like a player would.
+ * Scores are remembered in a `TranspositionTable` by the position's Zobrist hash,
+ * so a board reached twice (a turned S, the same stack next game) is only scored once.
+ */
+public class Bot {
+	// 2^16 entries is 1MB, -Dtetris.tableBits=0 turns the table off
+	public static final int TABLE_BITS = Integer.getInteger("tetris.tableBits", 16);
+	
+	Weights weights;
+	ForkJoinPool pool; // rotations are searched in parallel on this, or on the caller if null
+	Search search; // scratch for searching on the caller's thread
+	Search[] searches; // one per rotation for searching on `pool`
+	TranspositionTable table; // null to score everything from scratch
+
+	int plannedBlock; // `Game.getBlocks()` when we last planned
+	long plannedTick;
+
+	// The best placement from the last `decide()`
+	boolean found;
+	int bestRotations;
+	int bestShift; // columns to move after rotating, negative is left
+	double bestScore;
+
+	public Bot(Weights weights, ForkJoinPool pool) {
+		this(weights, pool, TABLE_BITS > 0 ? new TranspositionTable(TABLE_BITS) : null);
+	}
+	
+	/**
+	 * Bots can share a table (from any number of threads), as long as they have the same weights
+	 */
+	public Bot(Weights weights, ForkJoinPool pool, TranspositionTable table) {
+		this.weights = weights;
+		this.pool = pool;
+		this.table = table;
+		search = new Search();
+		searches = new Search[4];
+		for(int r=0; r < searches.length; ++r) {
+			searches[r] = new Search();
+		}
+	}
+	
+	public TranspositionTable getTable() {
+		return table;
+	}
+
+	/**
+	 * Call before every `Game.step()`.
+	 * Plans each new block once and queues up the keys for it.
+	 */
+	public void play(Game game) {
+		play(game, game.getTick());
+	}
+	
+	/**
+	 * Same, for a game stepped with `Game.step(long)`: the keys are offered at `time`,
+	 * on the same clock as the deadline (`Controller` passes the end of the tick, like a key pressed in it)
+	 */
+	public void play(Game game, long time) {
+		if(game.getState() != GameState.FALLING) {
+			return;
+		}
+		// a new block, or a new game that's already on the same block count
+		if(game.getBlocks() == plannedBlock && game.getTick() >= plannedTick) {
+			return;
+		}
+		plannedBlock = game.getBlocks();
+		plannedTick = game.getTick();
+
+		if(decide(game.getBoard(), game.getCurrentBlock(), game.getPieces().peek())) {
+			for(int i=0; i < bestRotations; ++i) {
+				game.offer(Input.ROTATE, time);
+			}
+			for(int i=0; i < Math.abs(bestShift); ++i) {
+				game.offer(bestShift < 0 ? Input.LEFT : Input.RIGHT, time);
+			}
+			game.offer(Input.HARD_DROP, time);
+		}
+	}
+
+	/**
+	 * Finds the best placement for `block` on `board`.
+	 * Returns false if the block can't go anywhere.
+	 */
+	public boolean decide(Board board, Block block) {
+		return decide(board, block, null);
+	}
+	
+	/**
+	 * Same, knowing which block comes after it (which goes into the position's hash)
+	 */
+	public boolean decide(Board board, Block block, BlockType next) {
+		int stackTop = board.stackTop();
+		long key = board.getHash() ^ Zobrist.blocks(block.blockType, next);
+		int rotations = block.blockType == BlockType.O ? 1 : 4; // an O doesn't rotate
+
+		found = false;
+		bestScore = Double.NEGATIVE_INFINITY;
+
+		if(pool == null || pool.getParallelism() == 1) {
+			search.reset(key, table);
+			for(int r=0; r < rotations; ++r) {
+				search.run(board, block, r, stackTop, weights);
+			}
+			take(search);
+		}
+		else {
+			Search[] results = searches;
+			for(int r=0; r < rotations; ++r) {
+				results[r].reset(key, table);
+			}
+			pool.invoke(new RecursiveAction() {
+				@Override
+				protected void compute() {
+					RecursiveAction[] tasks = new RecursiveAction[rotations];
+					for(int r=0; r < rotations; ++r) {
+						int rotation = r;
+						tasks[r] = new RecursiveAction() {
+							@Override
+							protected void compute() {
+								results[rotation].run(board, block, rotation, stackTop, weights);
+							}
+						};
+					}
+					invokeAll(tasks);
+				}
+			});
+			// merged in rotation order, so ties go the same way as searching on one thread
+			for(int r=0; r < rotations; ++r) {
+				take(results[r]);
+			}
+		}
+		return found;
+	}
+
+	private void take(Search result) {
+		if(result.table != null) {
+			result.table.count(result.lookups, result.hits, result.stores, result.evictions);
+		}
+		if(result.found && (!found || result.bestScore > bestScore)) {
+			found = true;
+			bestScore = result.bestScore;
+			bestRotations = result.bestRotations;
+			bestShift = result.bestShift;
+		}
+	}
+
+	/**
+	 * One thread's worth of searching, along with the best it has seen
+	 */
+	static class Search {
+		int[] heights = new int[Board.MAX_WIDTH];
+		long key; // hash of the board and blocks before placing
+		TranspositionTable table;
+		int lookups; // for `table`'s metrics, handed over by `Bot.take()`
+		int hits;
+		int stores;
+		int evictions;
+
+		boolean found;
+		int bestRotations;
+		int bestShift;
+		double bestScore;
+
+		void reset(long key, TranspositionTable table) {
+			this.key = key;
+			this.table = table;
+			lookups = 0;
+			hits = 0;
+			stores = 0;
+			evictions = 0;
+			found = false;
+			bestScore = Double.NEGATIVE_INFINITY;
+		}
+
+		/**
+		 * Tries every column `block` can reach after rotating `rotations` times
+		 */
+		void run(Board board, Block block, int rotations, int stackTop, Weights weights) {
+			BlockType type = block.blockType;
+			int state = block.state;
+			int x = block.x;
+			int y = block.y;
+
+			// Rotate where it is, the same way `Block.rotate()` would
+			for(int i=0; i < rotations; ++i) {
+				int k = Block.findKick(board, type, state, x, y);
+				if(k < 0) {
+					return;
+				}
+				x += type.kickX[state][k];
+				y += type.kickY[state][k];
+				state = (state + 1) & 3;
+			}
+			if(!Block.fits(board, type, state, x, y)) {
+				return;
+			}
+
+			// Then slide as far as it goes each way
+			tryDrop(board, type, state, x, y, rotations, 0, stackTop, weights);
+			for(int shift=-1; Block.fits(board, type, state, x + shift, y); --shift) {
+				tryDrop(board, type, state, x, y, rotations, shift, stackTop, weights);
+			}
+			for(int shift=1; Block.fits(board, type, state, x + shift, y); ++shift) {
+				tryDrop(board, type, state, x, y, rotations, shift, stackTop, weights);
+			}
+		}
+
+		private void tryDrop(Board board, BlockType type, int state, int x, int y,
+				int rotations, int shift, int stackTop, Weights weights) {
+			int landX = x + shift;
+			int landY = Block.landingY(board, type, state, landX, y);
+
+			// The cells the block ends up in, not how it got there, so turned twice or not it's the same entry
+			double score;
+			if(table != null) {
+				long placed = key;
+				for(int i=0; i < 4; ++i) {
+					placed ^= Zobrist.cell((landY + type.offsetY[state][i]) * board.width + landX + type.offsetX[state][i]);
+				}
+				score = table.get(placed);
+				++lookups;
+				if(Double.isNaN(score)) {
+					score = evaluate(board, type, state, landX, landY, stackTop, weights);
+					++stores;
+					if(table.put(placed, score)) {
+						++evictions;
+					}
+				}
+				else {
+					++hits;
+				}
+			}
+			else {
+				score = evaluate(board, type, state, landX, landY, stackTop, weights);
+			}
+			if(!found || score > bestScore) {
+				found = true;
+				bestScore = score;
+				bestRotations = rotations;
+				bestShift = shift;
+			}
+		}
+
+		/**
+		 * Scores the board as it would be with the block locked at <x,y>,
+		 * and any rows that fills up cleared.
+		 * Works straight off the row masks, nothing gets copied.
+		 */
+		double evaluate(Board board, BlockType type, int state, int x, int y, int stackTop, Weights weights) {
+			int[] offsetX = type.offsetX[state];
+			int[] offsetY = type.offsetY[state];
+			int top = stackTop;
+			for(int i=0; i < 4; ++i) {
+				top = Math.min(top, y + offsetY[i]);
+			}
+
+			// Only rows the block lands in can fill up, and no mino is more than 3 rows from the base
+			int cleared = 0;
+			for(int row=Math.max(0, y - 3); row <= y + 3 && row < board.height; ++row) {
+				long mask = board.rows[row] | pieceMask(offsetX, offsetY, x, y, row);
+				if(mask == board.fullRow) {
+					++cleared;
+				}
+			}
+
+			// Walk down the rows, skipping the cleared ones.
+			// A column's height is set by the first cell we see in it,
+			// and every empty cell under a seen cell is a hole.
+			int rowsLeft = board.height - cleared;
+			int[] columnHeights = heights;
+			for(int col=0; col < board.width; ++col) {
+				columnHeights[col] = 0;
+			}
+			long seen = 0;
+			int holes = 0;
+			int effectiveRow = top; // row index once the cleared rows are gone
+			for(int row=top; row < board.height; ++row) {
+				long mask = board.rows[row] | pieceMask(offsetX, offsetY, x, y, row);
+				if(mask == board.fullRow) {
+					continue;
+				}
+				holes += Long.bitCount(seen & ~mask);
+				long fresh = mask & ~seen;
+				while(fresh != 0) {
+					int col = Long.numberOfTrailingZeros(fresh);
+					columnHeights[col] = rowsLeft - effectiveRow;
+					fresh &= fresh - 1;
+				}
+				seen |= mask;
+				++effectiveRow;
+			}
+
+			int aggregateHeight = 0;
+			int bumps = 0;
+			for(int col=0; col < board.width; ++col) {
+				aggregateHeight += columnHeights[col];
+				if(col > 0) {
+					bumps += Math.abs(columnHeights[col] - columnHeights[col - 1]);
+				}
+			}
+
+			return weights.evaluate(aggregateHeight, cleared, holes, bumps);
+		}
+
+		/**
+		 * The bits the block covers in `row`
+		 */
+		private static long pieceMask(int[] offsetX, int[] offsetY, int x, int y, int row) {
+			long mask = 0;
+			for(int i=0; i < 4; ++i) {
+				if(y + offsetY[i] == row) {
+					mask |= 1L << (x + offsetX[i]);
+				}
+			}
+			return mask;
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package tetris;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+/**
+ * Draws the Play Area onto a single `Canvas` instead of 200 `Tile` nodes.
+ * Cells the board reports as changed are marked dirty,
+ * and once per pulse only the dirty cells get redrawn.
+ * Pick it with `--renderer=canvas`.
+ */
+public class CanvasPlayArea extends Canvas implements BoardListener {
+	public static final int CELL_SIZE = Tile.SIZE; // same footprint as a `Tile`, for a 10x20 board
+	
+	int width; // in cells
+	int height;
+	int cellSize; // in pixels
+	byte[] shown; // palette index of every cell, y * width + x
+	boolean[] dirty;
+	int[] dirtyList; // indices of the dirty cells, so we don't scan them all
+	int dirtyCount;
+	
+	AnimationTimer painter;
+	
+	public CanvasPlayArea(int width, int height) {
+		this(width, height, CELL_SIZE);
+	}
+	
+	public CanvasPlayArea(int width, int height, int cellSize) {
+		super(width * cellSize, height * cellSize);
+		this.width = width;
+		this.height = height;
+		this.cellSize = cellSize;
+		shown = new byte[width * height];
+		dirty = new boolean[width * height];
+		dirtyList = new int[width * height];
+		
+		drawSplash();
+		
+		painter = new AnimationTimer() {
+			@Override
+			public void handle(long now) {
+				long startTime = System.nanoTime();
+				render();
+				Tetris.profiler.record(Profiler.Phase.RENDER, startTime);
+			}
+		};
+		painter.start();
+	}
+	
+	/**
+	 * Random colors until the first game starts, same as the tiles
+	 */
+	public void drawSplash() {
+		GraphicsContext gc = getGraphicsContext2D();
+		gc.setFill(Color.BLACK);
+		gc.fillRect(0, 0, getWidth(), getHeight());
+		for(int x=0; x < width; ++x) {
+			for(int y=0; y < height; ++y) {
+				gc.setFill(new Color(Tile.rand.nextDouble(), Tile.rand.nextDouble(), Tile.rand.nextDouble(), 1.0));
+				fillCell(gc, x, y);
+			}
+		}
+	}
+	
+	@Override
+	public void cellChanged(int x, int y, byte color) {
+		int i = y * width + x;
+		shown[i] = color;
+		if(!dirty[i]) {
+			dirty[i] = true;
+			dirtyList[dirtyCount] = i;
+			++dirtyCount;
+		}
+	}
+	
+	/**
+	 * Redraws every cell that changed since the last call
+	 */
+	public void render() {
+		GraphicsContext gc = getGraphicsContext2D();
+		for(int n=0; n < dirtyCount; ++n) {
+			int i = dirtyList[n];
+			dirty[i] = false;
+			gc.setFill(Tile.PALETTE[shown[i]]);
+			fillCell(gc, i % width, i / width);
+		}
+		dirtyCount = 0;
+	}
+	
+	// Leaves a 1px black border like the 28px rectangle inside a 30px tile (unless cells are too small for one)
+	private void fillCell(GraphicsContext gc, int x, int y) {
+		if(cellSize < 3) {
+			gc.fillRect(x * cellSize, y * cellSize, cellSize, cellSize);
+		}
+		else {
+			gc.fillRect(x * cellSize + 1, y * cellSize + 1, cellSize - 2, cellSize - 2);
+		}
+	}
+}
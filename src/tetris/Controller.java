@@ -1,15 +1,14 @@
 package tetris;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Random;
-import java.util.Set;
-import java.util.concurrent.Semaphore;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 import javafx.animation.AnimationTimer;
 import javafx.scene.input.KeyCode;
@@ -17,44 +16,68 @@ import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseEvent;
 
 /**
- * Holds the game logic and performs operations on tetriminos.
+ * Runs a `Game` from the UI.
  * Defines all input logic. (onclick, key, etc.)
  * Calls `Tetris` methods to update UI.
  * @author John Meyering
  *
  */
 public class Controller {
+	// Most ticks we'll run in one pulse before giving up and dropping the backlog
+	public static final int MAX_CATCH_UP = 5;
 	
-	Random rand;
-	Semaphore dataAccess; // used by update and handlers
-	
-	// data that is set by handlers and consumed by update
-	int numRotates; 
-	int xChange;
-	boolean hardDrop;
-	Set<Integer> breakRows;
-	
-	String gameState;
 	public static Driver driver;
-	Block currentBlock;
-	
-	boolean softDrop; // when true, we drop twice as fast
-	double lowerTimeSoft; // time per lowering block by 1 unit in softDrop
-	double fallingTimer; // updated when in "Falling" state
-	double lowerTimeNormal; // time per lowering block by 1 unit
-	
-	double breakTimer; // updated when in the "Break Handler" state
-	double breakTime;
-	boolean breakShown;
+	// Replays and profiles get written here so the FX thread never waits on the disk
+	static final ExecutorService files = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "file-writer");
+		thread.setDaemon(true);
+		return thread;
+	});
+	Game game;
+	Bot bot;
+	boolean autoplay; // B lets the bot take over
+	GameEvents events; // for Flight Recorder
+	ReplayRecorder recorder; // every game gets saved to replays/
 	
 	public Controller() {
-		rand = new Random();
-		
-		gameState = "Waiting";
-		
-		dataAccess = new Semaphore(1);
+		game = new Game(Tetris.board);
+		bot = new Bot(Weights.loadOrDefault(Weights.FILE), ForkJoinPool.commonPool()); // tuned ones if WeightOptimizer has run
+		recorder = new ReplayRecorder();
+		game.setRecorder(recorder);
+		game.setProfiler(Tetris.profiler);
+		game.setGhost(true);
+		if(Tetris.spectators != null) {
+			Tetris.board.setTracking(true);
+		}
+		events = new GameEvents();
+		game.setEvents(events);
+		game.setListener(new GameListener() {
+			@Override
+			public void scoreChanged(int score) {
+				Tetris.setScore(score);
+			}
+			@Override
+			public void gameOver(int finalScore) {
+				events.gameOver(game);
+				saveScore(finalScore);
+				saveReplay();
+				saveProfile();
+			}
+			@Override
+			public void blockSpawned() {
+				events.spawned(game);
+			}
+			@Override
+			public void blockLocked() {
+				Tetris.audio.send(AudioManager.Command.LOCK);
+			}
+			@Override
+			public void linesCleared(int count) {
+				Tetris.audio.send(count == 4 ? AudioManager.Command.TETRIS : AudioManager.Command.LINE_CLEAR);
+			}
+		});
 		
-		Tetris.startMusic();
+		Tetris.audio.send(AudioManager.Command.PLAY_MUSIC);
 	}
 	
 	/**
@@ -77,303 +100,162 @@ public class Controller {
 		
 		// Keyboard Controls
 		Tetris.scene.setOnKeyPressed( (KeyEvent event) -> {
-			try { dataAccess.acquire(); } catch(Exception e) { System.out.println(e.getMessage());}
+			long now = System.nanoTime();
 			
 			switch(event.getCode()) {
 			case W:
-				++numRotates;
+				game.offer(Input.ROTATE, now);
 				break;
 			case S:
-				softDrop = true;
+				game.offer(Input.SOFT_DROP_ON, now);
 				break;
 			case A:
-				--xChange;
+				game.offer(Input.LEFT, now);
 				break;
 			case D:
-				++xChange;
+				game.offer(Input.RIGHT, now);
 				break;
 			case Q:
 				startGame();
 				break;
 			case SPACE:
-				hardDrop = true;
+				game.offer(Input.HARD_DROP, now);
 				break;
 			case E:
 				Tetris.toggleLeaderboard();
+				break;
+			case B:
+				autoplay = !autoplay;
+				break;
+			case P:
+				Tetris.toggleProfile();
 			}
-			
-			dataAccess.release();
 		});
 		Tetris.scene.setOnKeyReleased( (KeyEvent event) -> {
-			try { dataAccess.acquire(); } catch(Exception e) { System.out.println(e.getMessage());}
 			if(event.getCode() == KeyCode.S) {
-				softDrop = false;
+				game.offer(Input.SOFT_DROP_OFF, System.nanoTime());
 			}
-			dataAccess.release();
 		});
 	}
 	
 	/**
-	 * Clear the space and initialize variables
+	 * Clear the space and start a new game
 	 */
 	public void startGame() {
-		Tetris.clearPlayArea();
-		Tetris.score.setText("0");
+		game.start(System.nanoTime());
 		Tetris.gameStarted = true;
-		
-		gameState = "Waiting";
-		softDrop = false;
-		lowerTimeNormal = 1.2; // 1.2 seconds per lower as a baseline (updates on break) (if I decide to)
-		lowerTimeSoft = lowerTimeNormal / 8;
-		breakTime = 0.2; // This probably shouldn't get faster (would mess with satisfaction)
-		numRotates = 0;
-		xChange = 0;
-		hardDrop = false;
 		driver.start();
 	}
 	
 	/**
-	 * Take one step into the future!
+	 * Take one tick into the future!
+	 * Keys pressed after `tickEnd` (System.nanoTime()) are left for the next tick.
 	 */
-	public void update(double deltaT) {
-		// Keep the music going!
-		if(!Tetris.musicClip.isPlaying()) {
-			Tetris.startMusic();
+	public void update(long tickEnd) {
+		long startTime = System.nanoTime();
+		if(autoplay) {
+			long botTime = System.nanoTime();
+			bot.play(game, tickEnd); // the same clock as the keyboard's inputs
+			Tetris.profiler.record(Profiler.Phase.BOT, botTime);
 		}
-		
-		try { dataAccess.acquire(); } catch(Exception e) {
-			System.out.println(e.getMessage() + " from dataAccess.acquire()");
-		}
-		
-		// Set the time limit based on user input
-		double lowerTimeChosen = 0;
-		if(softDrop) {
-			lowerTimeChosen = lowerTimeSoft;
-		}
-		else {
-			lowerTimeChosen = lowerTimeNormal;
-		}
-		
-		if(gameState.equals("Waiting")) {
-			startNewBlock();
-			if(currentBlock.canLower()) {
-				gameState = "Falling";
-			}
-			else {
-				/* If we just spawned a block but can't lower it,
-				   then the game must be over. */
-				gameState = "Game Over";
-				int finalScore = Integer.parseInt(Tetris.score.getText());
-				saveScore(finalScore);
-			}
-			
-			fallingTimer = 0;
-		}
-		else if(gameState.equals("Falling")) {
-			fallingTimer += deltaT;
-			
-			// input handling
-			consumeInputs();
-			
-			if(fallingTimer > lowerTimeChosen) {
-				fallingTimer -= lowerTimeChosen;
-				
-				if(currentBlock.canLower()) {
-					currentBlock.lower();
-				}
-				else {
-					gameState = "Break Check";
-				}
-			}
-		}
-		else if(gameState.equals("Break Check")) {
-			/* Every line for a break, if there is one, increment
-			 * the brink counter and check again. */
-			breakCheck();
-			gameState = "Break Handler";
-			breakTimer = 0;
-			breakShown = false;
-		}
-		else if(gameState.equals("Break Handler")) {
-			if(breakRows.isEmpty()) {
-				// There weren't any breaks, move on
-				gameState = "Waiting";
-			}
-			else {
-				// There were breaks, we need to display them
-				breakTimer += deltaT;
-				if(breakTimer < breakTime) {
-					if(!breakShown) {
-						for(Integer y: breakRows) {
-							Tetris.breakRow(y);
-						}
-						int score = determineScore();
-						int oldScore = Integer.parseInt(Tetris.score.getText());
-						Tetris.setScore(oldScore + score);
-						breakShown = true;
-					}
-				}
-				else {
-					// Move on if enough time has passed
-					// i.e. drop the tiles that were above the breaks
-					// and check for more breaks
-					for(Integer y: breakRows) {
-						Tetris.resetRow(y);
-					}
-					List<Integer> breakRowsList = new ArrayList<Integer>(breakRows);
-					Collections.sort(breakRowsList);
-					for(Integer y: breakRowsList) {
-						// Drop items above each row, one row at a time
-						Tetris.dropHangingRows(y, 1);
-					}
-					
-					gameState = "Break Check";
-				}
-			}
-			
+		game.step(tickEnd);
+		if(Tetris.spectators != null) {
+			Tetris.spectators.publish(game.getBoard(), game.getTick());
 		}
-		
-		dataAccess.release();
+		Tetris.profiler.record(Profiler.Phase.UPDATE, startTime);
 	}
 	
 	/**
-	 * Make a random new block and display it in the starting position.
+	 * Saves the user's score in scores.bin.
+	 * The actual writing happens on `Tetris.scoreWriter`'s thread, not this one.
 	 */
-	public void startNewBlock() {
-		// https://stackoverflow.com/questions/1972392/pick-a-random-value-from-an-enum
-		int pick = rand.nextInt(BlockType.values().length);
-		currentBlock = new Block(BlockType.values()[pick]);
-		currentBlock.paintTiles();
+	public void saveScore(int score) {
+		ScoreWriter.Score result = new ScoreWriter.Score(System.currentTimeMillis(), score, game.getLines(), game.getTick());
+		Tetris.scoreIndex.add(new Leaderboard.Entry(result.date(), score));
+		if(!Tetris.scoreWriter.offer(result)) {
+			System.out.println("Score queue full, " + score + " wasn't saved");
+		}
 	}
 	
 	/**
-	 * Perform operations designated by user inputs.
-	 * Zeroes out input variables.
+	 * Saves the game that just ended in replays/, named after when it ended.
+	 * The writing happens on `files`' thread.
 	 */
-	public void consumeInputs() {
-		while(numRotates > 0) {
-			currentBlock.rotate();
-			--numRotates;
-		}
-		if(xChange > 0) {
-			while(xChange > 0) {
-				currentBlock.moveRight();
-				--xChange;
-			}
-		}
-		else if(xChange < 0) {
-			while(xChange < 0) {
-				currentBlock.moveLeft();
-				++xChange;
-			}
-		}
-		
-		if(hardDrop) {
-			currentBlock.hardDrop();
-			fallingTimer = lowerTimeNormal - 0.35;
-			hardDrop = false;
-		}
+	public void saveReplay() {
+		save(Paths.get("replays", timestamp() + ".replay"), recorder.toByteArray());
 	}
 	
 	/**
-	 *  Checks for breaks and sets the breakRows set.
+	 * Saves how long everything took this game in profiles/, and starts counting again.
+	 * The writing happens on `files`' thread.
 	 */
-	public void breakCheck() {
-		/* Go through each row 
-		 * if the row is entirely taken, then we need to break it*/
-		breakRows = new HashSet<Integer>();
-		
-		for(int y=0; y < 20; ++y) {
-			// Check if the row needs to be broken
-			boolean rowNeedsBreak = true;
-			for(int x=0; x < 10; ++x) {
-				if(!Tetris.tiles[x][y].isTaken()) {
-					rowNeedsBreak = false;
-					break;
-				}
-			}
-			// If it does, then remember that
-			if(rowNeedsBreak) {
-				breakRows.add(y);
-			}
-		}
+	public void saveProfile() {
+		save(Paths.get("profiles", timestamp() + ".txt"), Tetris.profiler.summaryAndReset().getBytes(StandardCharsets.UTF_8));
 	}
 	
-	/**
-	 * Scores the user's broken rows
-	 */
-	public int determineScore() {
-		int score = 0;
-		// https://tetris.wiki/Scoring
-		if(breakRows.size() == 1) {
-			// Single
-			score = 100;
-		}
-		else if(breakRows.size() == 2) {
-			// Double
-			score = 300;
-		}
-		else if(breakRows.size() == 3) {
-			// Triple
-			score = 500;
-		}
-		else if(breakRows.size() == 4) {
-			// Tetris
-			score = 800;
-		}
-		return score;
+	static String timestamp() {
+		return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
 	}
 	
 	/**
-	 * Saves the user's score in scores.txt
+	 * Writes `bytes` to `path` on `files`' thread, making its folder first if it has to
 	 */
-	public void saveScore(int score) {
-		LocalDateTime time = LocalDateTime.now();
-		
-		String year = Integer.toString(time.getYear());
-		String month = Integer.toString(time.getMonthValue());
-		String day = Integer.toString(time.getDayOfMonth());
-		
-		String hour = Integer.toString(((time.getHour() % 12) + 1));
-		String minute = Integer.toString(time.getMinute());
-		if(hour.length() == 1) {
-			hour = "0" + hour;
-		}
-		if(minute.length() == 1) {
-			minute = "0" + minute;
-		}
-		
-		String xm = (time.getHour() / 12) < 1 ? "AM" : "PM";
-		
-		String date = year + "-" + month + "-" + day + "::" + hour + ":" + minute + xm;
-		String string = date + " " + score + "\n";
-		try {
-			BufferedWriter out = new BufferedWriter(
-					new FileWriter("scores.txt", true));
-			out.write(string);
-			out.close();
-			
-		} catch(Exception e) {
-			System.out.println(e.getMessage() + " occured in saveScore()");
-		}
+	static void save(Path path, byte[] bytes) {
+		files.execute(() -> {
+			try {
+				Files.createDirectories(path.getParent());
+				Files.write(path, bytes);
+			} catch(Exception e) {
+				System.out.println(e.getMessage() + " occured writing " + path);
+			}
+		});
 	}
 	
 	/**
-	 * Does what you think it does
+	 * Does what you think it does.
+	 * Runs however many fixed ticks fit into the time since the last pulse,
+	 * so a 60Hz and a 240Hz monitor play exactly the same game.
 	 * @author John Meyering
 	 *
 	 */
 	public class Driver extends AnimationTimer {
+		final long tickLength = 1_000_000_000L / Game.TICK_RATE; // nanoseconds per tick
 		long lasttime;
 		boolean firsttime = true;
+		long accumulator; // nanoseconds we still owe the simulation
+		long pulses;
 		
 		@Override
 		public void handle(long now) {
+			long startTime = System.nanoTime();
 			if( firsttime ) { lasttime = now; firsttime = false; }
 			else {
-				double deltat = (now-lasttime) * 1.0e-9;
+				accumulator += now - lasttime;
 				lasttime = now;
-				update(deltat);
+				
+				// The ticks we owe stand for the time from `now - accumulator` up to `now`,
+				// each one gets the keys pressed before its end
+				int steps = 0;
+				while(accumulator >= tickLength && steps < MAX_CATCH_UP) {
+					update(now - accumulator + tickLength);
+					accumulator -= tickLength;
+					++steps;
+				}
+				
+				// A GC pause or window drag shouldn't turn into a burst of ticks
+				long dropped = 0;
+				if(accumulator >= tickLength) {
+					dropped = accumulator / tickLength;
+					accumulator %= tickLength;
+				}
+				Tetris.profiler.ticked(steps, dropped);
+			}
+			Tetris.profiler.record(Profiler.Phase.PULSE, startTime);
+			
+			// a few times a second is plenty for reading
+			++pulses;
+			if(pulses % 15 == 0) {
+				Tetris.updateProfile();
 			}
 		}
 	}
@@ -19,7 +19,7 @@ public class CustomButton extends Group {
 		
 		label = new Label(text);
 		label.setTextFill(Color.WHITE);
-		label.setFont(Tetris.font);
+		Tetris.useFont(label.fontProperty());
 		label.setFocusTraversable(true);
 		
 		getChildren().add(bg);
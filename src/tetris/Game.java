@@ -0,0 +1,406 @@
+package tetris;
+
+/**
+ * The rules of the game, with no JavaFX anywhere.
+ * Start it, feed it inputs, step it one tick at a time and read the board and score back.
+ * `Controller` drives one of these from the UI, `HeadlessRunner` drives them as fast as it can.
+ */
+public class Game {
+	// Simulation rate, override with -Dtetris.tickRate=120
+	public static final int TICK_RATE = Integer.getInteger("tetris.tickRate", 60);
+	
+	PieceGenerator pieces;
+	long seed; // the same seed and inputs always play the same game
+	ReplayRecorder recorder; // writes down the seed and every input, if set
+	Profiler profiler; // times input handling and line clears, if set
+	GameEvents events; // Flight Recorder events around locking and clearing, if set
+	boolean ghost; // show where each block will land
+	
+	// filled by whoever is playing and drained in order by step
+	InputQueue inputs;
+	InputQueue.Handler inputHandler; // made once so draining doesn't allocate
+	int[] breakRows; // full rows after the last lock, top to bottom
+	int breakCount;
+	
+	GameState gameState;
+	Board board;
+	Block currentBlock;
+	GameListener listener;
+	
+	int score;
+	int lines; // rows broken so far
+	int blocks; // blocks spawned so far
+	long tick; // ticks stepped since start
+	
+	// All timing is counted in ticks so the game doesn't depend on the frame rate
+	boolean softDrop; // when true, we drop eight times as fast
+	int lowerTimeSoft; // ticks per lowering block by 1 unit in softDrop
+	int fallingTimer; // updated when in FALLING state
+	int lowerTimeNormal; // ticks per lowering block by 1 unit
+	
+	int breakTimer; // updated when in the BREAK_HANDLER state
+	int breakTime;
+	boolean breakShown;
+	
+	/**
+	 * A game on its own 10x20 board
+	 */
+	public Game() {
+		this(Board.DEFAULT_WIDTH, Board.DEFAULT_HEIGHT);
+	}
+	
+	/**
+	 * A game on its own board of any size `Board` allows
+	 */
+	public Game(int width, int height) {
+		this(new Board(width, height));
+	}
+	
+	public Game(Board board) {
+		this.board = board;
+		pieces = new PieceGenerator();
+		gameState = GameState.WAITING;
+		inputs = new InputQueue(64);
+		breakRows = new int[4]; // a block can't fill more than 4 rows
+		inputHandler = (Input input, long time) -> {
+			applyInput(input);
+		};
+	}
+	
+	public void setListener(GameListener listener) {
+		this.listener = listener;
+	}
+	
+	public void setRecorder(ReplayRecorder recorder) {
+		this.recorder = recorder;
+	}
+	
+	public void setProfiler(Profiler profiler) {
+		this.profiler = profiler;
+	}
+	
+	public void setEvents(GameEvents events) {
+		this.events = events;
+	}
+	
+	/**
+	 * Show a ghost of where the falling block will land (off by default, nothing headless needs it)
+	 */
+	public void setGhost(boolean ghost) {
+		this.ghost = ghost;
+		if(currentBlock != null && gameState == GameState.FALLING) {
+			currentBlock.setGhost(ghost);
+		}
+	}
+	
+	/**
+	 * Clear the space and initialize variables.
+	 * Blocks come from `seed`.
+	 */
+	public void start(long seed) {
+		this.seed = seed;
+		pieces.reset(seed);
+		board.clear();
+		
+		gameState = GameState.WAITING;
+		score = 0;
+		lines = 0;
+		blocks = 0;
+		tick = 0;
+		softDrop = false;
+		lowerTimeNormal = ticks(1.2); // 1.2 seconds per lower as a baseline (updates on break) (if I decide to)
+		lowerTimeSoft = lowerTimeNormal / 8;
+		breakTime = ticks(0.2); // This probably shouldn't get faster (would mess with satisfaction)
+		inputs.clear();
+		
+		if(recorder != null) {
+			recorder.begin(seed, TICK_RATE, board.width, board.height);
+		}
+		if(listener != null) {
+			listener.scoreChanged(score);
+		}
+	}
+	
+	/**
+	 * Queue up an input for the next tick.
+	 * Safe to call from one thread other than the one stepping.
+	 */
+	public boolean offer(Input input, long time) {
+		return inputs.offer(input, time);
+	}
+	
+	/**
+	 * Converts seconds to a whole number of ticks
+	 */
+	public static int ticks(double seconds) {
+		return (int) Math.round(seconds * TICK_RATE);
+	}
+	
+	/**
+	 * Take one tick into the future!
+	 * Every input waiting gets applied, whenever it was offered.
+	 */
+	public void step() {
+		step(Long.MAX_VALUE);
+	}
+	
+	/**
+	 * Take one tick into the future, applying only the inputs offered with a time at or before `inputDeadline`
+	 * (the rest wait for a later tick). `Controller` passes the wall clock time this tick stands for,
+	 * so a key lands on the tick it was pressed in however the pulses are spaced.
+	 */
+	public void step(long inputDeadline) {
+		++tick;
+		
+		// Set the time limit based on user input
+		int lowerTimeChosen = 0;
+		if(softDrop) {
+			lowerTimeChosen = lowerTimeSoft;
+		}
+		else {
+			lowerTimeChosen = lowerTimeNormal;
+		}
+		
+		if(gameState == GameState.WAITING) {
+			startNewBlock();
+			if(currentBlock.canLower()) {
+				gameState = GameState.FALLING;
+			}
+			else {
+				/* If we just spawned a block but can't lower it,
+				   then the game must be over. */
+				gameState = GameState.GAME_OVER;
+				if(recorder != null) {
+					recorder.finish(tick, score);
+				}
+				if(listener != null) {
+					listener.gameOver(score);
+				}
+			}
+			
+			fallingTimer = 0;
+		}
+		else if(gameState == GameState.FALLING) {
+			++fallingTimer;
+			
+			// input handling
+			long startTime = profiler != null ? System.nanoTime() : 0; // only pay for the clock when profiling
+			consumeInputs(inputDeadline);
+			if(profiler != null) {
+				profiler.record(Profiler.Phase.INPUT, startTime);
+			}
+			
+			if(fallingTimer >= lowerTimeChosen) {
+				fallingTimer -= lowerTimeChosen;
+				
+				if(currentBlock.canLower()) {
+					currentBlock.lower();
+				}
+				else {
+					currentBlock.lock();
+					gameState = GameState.BREAK_CHECK;
+					if(listener != null) {
+						listener.blockLocked();
+					}
+				}
+			}
+		}
+		else if(gameState == GameState.BREAK_CHECK) {
+			// Look for breaks in the rows the block landed in
+			long startTime = profiler != null ? System.nanoTime() : 0;
+			if(events != null) {
+				events.lockBegin();
+			}
+			breakCheck();
+			if(events != null) {
+				events.lockEnd(this, breakCount);
+			}
+			if(profiler != null) {
+				profiler.record(Profiler.Phase.CLEAR, startTime);
+			}
+			gameState = GameState.BREAK_HANDLER;
+			breakTimer = 0;
+			breakShown = false;
+		}
+		else if(gameState == GameState.BREAK_HANDLER) {
+			if(breakCount == 0) {
+				// There weren't any breaks, move on
+				gameState = GameState.WAITING;
+			}
+			else {
+				// There were breaks, we need to display them
+				++breakTimer;
+				if(breakTimer < breakTime) {
+					if(!breakShown) {
+						for(int i=0; i < breakCount; ++i) {
+							board.flashRow(breakRows[i]);
+						}
+						score += determineScore();
+						lines += breakCount;
+						if(listener != null) {
+							listener.linesCleared(breakCount);
+							listener.scoreChanged(score);
+						}
+						breakShown = true;
+					}
+				}
+				else {
+					// Move on if enough time has passed
+					// i.e. remove the breaks and drop the tiles above them.
+					// Dropping rows can't fill a new one, so there's nothing to re-check
+					long startTime = profiler != null ? System.nanoTime() : 0;
+					if(events != null) {
+						events.clearBegin();
+					}
+					board.clearRows(breakRows, breakCount);
+					if(events != null) {
+						events.clearEnd(this, breakCount);
+					}
+					if(profiler != null) {
+						profiler.record(Profiler.Phase.CLEAR, startTime);
+					}
+					
+					gameState = GameState.WAITING;
+				}
+			}
+			
+		}
+	}
+	
+	/**
+	 * Deal a new block and display it in the starting position.
+	 * The last block is already locked into the board, so its `Block` gets reused.
+	 */
+	public void startNewBlock() {
+		if(currentBlock == null) {
+			currentBlock = new Block(pieces.next(), board);
+		}
+		else {
+			currentBlock.reset(pieces.next());
+		}
+		currentBlock.ghost = ghost;
+		currentBlock.paintTiles();
+		++blocks;
+		if(listener != null) {
+			listener.blockSpawned();
+		}
+	}
+	
+	/**
+	 * Perform operations designated by user inputs,
+	 * in the order they were pressed.
+	 */
+	public void consumeInputs() {
+		inputs.drain(inputHandler);
+	}
+	
+	/**
+	 * Same, but only the inputs offered at or before `until`
+	 */
+	public void consumeInputs(long until) {
+		inputs.drain(inputHandler, until);
+	}
+	
+	/**
+	 * Perform a single user input
+	 */
+	public void applyInput(Input input) {
+		if(recorder != null) {
+			recorder.record(tick, input);
+		}
+		switch(input) {
+		case ROTATE:
+			currentBlock.rotate();
+			break;
+		case LEFT:
+			currentBlock.moveLeft();
+			break;
+		case RIGHT:
+			currentBlock.moveRight();
+			break;
+		case SOFT_DROP_ON:
+			softDrop = true;
+			break;
+		case SOFT_DROP_OFF:
+			softDrop = false;
+			break;
+		case HARD_DROP:
+			currentBlock.hardDrop();
+			fallingTimer = lowerTimeNormal - ticks(0.35);
+			break;
+		}
+	}
+	
+	/**
+	 *  Checks for breaks and sets breakRows/breakCount.
+	 *  Only the rows the current block covers can have filled up.
+	 */
+	public void breakCheck() {
+		breakCount = board.fullRows(currentBlock.topRow(), currentBlock.bottomRow(), breakRows);
+	}
+	
+	/**
+	 * Scores the user's broken rows
+	 */
+	public int determineScore() {
+		int score = 0;
+		// https://tetris.wiki/Scoring
+		if(breakCount == 1) {
+			// Single
+			score = 100;
+		}
+		else if(breakCount == 2) {
+			// Double
+			score = 300;
+		}
+		else if(breakCount == 3) {
+			// Triple
+			score = 500;
+		}
+		else if(breakCount == 4) {
+			// Tetris
+			score = 800;
+		}
+		return score;
+	}
+	
+	/**
+	 * Zobrist hash of the position: which cells are locked, which block is falling and which is next.
+	 * The board part is kept up to date as blocks lock and rows clear, so this is just two XORs.
+	 */
+	public long getHash() {
+		BlockType current = currentBlock != null && gameState == GameState.FALLING ? currentBlock.blockType : null;
+		return board.getHash() ^ Zobrist.blocks(current, pieces.peek());
+	}
+	
+	public Board getBoard() {
+		return board;
+	}
+	public Block getCurrentBlock() {
+		return currentBlock;
+	}
+	public GameState getState() {
+		return gameState;
+	}
+	public boolean isOver() {
+		return gameState == GameState.GAME_OVER;
+	}
+	public int getScore() {
+		return score;
+	}
+	public int getLines() {
+		return lines;
+	}
+	public int getBlocks() {
+		return blocks;
+	}
+	public long getTick() {
+		return tick;
+	}
+	public long getSeed() {
+		return seed;
+	}
+	public PieceGenerator getPieces() {
+		return pieces;
+	}
+}
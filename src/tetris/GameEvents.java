@@ -0,0 +1,190 @@
+package tetris;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for what the game is doing, so a stutter can be
+ * lined up against GC pauses and file I/O in the same recording.
+ * They cost next to nothing when nobody is recording.
+ * `./gradlew run -Pjfr` records with tetris.jfc, which turns them all on.
+ */
+public class GameEvents {
+	
+	@Name("tetris.BlockSpawn")
+	@Label("Block Spawn")
+	@Category("Tetris")
+	@StackTrace(false)
+	public static class BlockSpawn extends Event {
+		@Label("Block")
+		String block;
+		@Label("Tick")
+		long tick;
+	}
+	
+	@Name("tetris.BlockLock")
+	@Label("Block Lock")
+	@Category("Tetris")
+	@StackTrace(false)
+	@Description("Checking the rows a block locked into for full ones")
+	public static class BlockLock extends Event {
+		@Label("Block")
+		String block;
+		@Label("Tick")
+		long tick;
+		@Label("Ticks Falling")
+		@Description("Ticks between the block spawning and locking")
+		long ticksFalling;
+		@Label("Full Rows")
+		int rows;
+	}
+	
+	@Name("tetris.LineClear")
+	@Label("Line Clear")
+	@Category("Tetris")
+	@StackTrace(false)
+	@Description("Removing full rows and dropping the ones above")
+	public static class LineClear extends Event {
+		@Label("Rows")
+		int rows;
+		@Label("Score")
+		int score;
+		@Label("Tick")
+		long tick;
+	}
+	
+	@Name("tetris.GameOver")
+	@Label("Game Over")
+	@Category("Tetris")
+	@StackTrace(false)
+	public static class GameOver extends Event {
+		@Label("Score")
+		int score;
+		@Label("Lines")
+		int lines;
+		@Label("Blocks")
+		int blocks;
+		@Label("Ticks")
+		long ticks;
+		@Label("Seed")
+		long seed;
+	}
+	
+	@Name("tetris.ScoreSave")
+	@Label("Score Save")
+	@Category("Tetris")
+	@Description("One batch of scores written to the score store")
+	@StackTrace(false)
+	public static class ScoreSave extends Event {
+		@Label("Scores")
+		int scores;
+		@Label("Fsync")
+		boolean fsync;
+	}
+	
+	@Name("tetris.LeaderboardLoad")
+	@Label("Leaderboard Load")
+	@Category("Tetris")
+	@StackTrace(false)
+	public static class LeaderboardLoad extends Event {
+		@Label("Source")
+		@Description("\"store\" for reading the score store at startup, \"open\" for showing the leaderboard")
+		String source;
+		@Label("Entries")
+		int entries;
+	}
+	
+	// Checked before making an event, so nothing gets allocated per block unless a recording wants them
+	static final EventType SPAWN = EventType.getEventType(BlockSpawn.class);
+	static final EventType LOCK = EventType.getEventType(BlockLock.class);
+	static final EventType CLEAR = EventType.getEventType(LineClear.class);
+	static final EventType OVER = EventType.getEventType(GameOver.class);
+	
+	long spawnTick; // for BlockLock.ticksFalling
+	BlockLock lock; // open while `Game.breakCheck()` runs
+	LineClear clear; // open while the board clears rows
+	
+	public void spawned(Game game) {
+		spawnTick = game.getTick();
+		if(!SPAWN.isEnabled()) {
+			return;
+		}
+		BlockSpawn event = new BlockSpawn();
+		if(event.shouldCommit()) {
+			event.block = game.getCurrentBlock().blockType.name();
+			event.tick = spawnTick;
+			event.commit();
+		}
+	}
+	
+	/**
+	 * Call right before `Game.breakCheck()`, which runs the tick after the block locked
+	 */
+	public void lockBegin() {
+		if(!LOCK.isEnabled()) {
+			return;
+		}
+		lock = new BlockLock();
+		lock.begin();
+	}
+	
+	public void lockEnd(Game game, int rows) {
+		if(lock == null) {
+			return;
+		}
+		lock.end();
+		if(lock.shouldCommit()) {
+			lock.block = game.getCurrentBlock().blockType.name();
+			lock.tick = game.getTick() - 1;
+			lock.ticksFalling = lock.tick - spawnTick;
+			lock.rows = rows;
+			lock.commit();
+		}
+		lock = null;
+	}
+	
+	/**
+	 * Call right before the board clears the rows
+	 */
+	public void clearBegin() {
+		if(!CLEAR.isEnabled()) {
+			return;
+		}
+		clear = new LineClear();
+		clear.begin();
+	}
+	
+	public void clearEnd(Game game, int rows) {
+		if(clear == null) {
+			return;
+		}
+		clear.end();
+		if(clear.shouldCommit()) {
+			clear.rows = rows;
+			clear.score = game.getScore();
+			clear.tick = game.getTick();
+			clear.commit();
+		}
+		clear = null;
+	}
+	
+	public void gameOver(Game game) {
+		if(!OVER.isEnabled()) {
+			return;
+		}
+		GameOver event = new GameOver();
+		if(event.shouldCommit()) {
+			event.score = game.getScore();
+			event.lines = game.getLines();
+			event.blocks = game.getBlocks();
+			event.ticks = game.getTick();
+			event.seed = game.getSeed();
+			event.commit();
+		}
+	}
+}
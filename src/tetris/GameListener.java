@@ -0,0 +1,13 @@
+package tetris;
+
+/**
+ * Gets told about things happening in a `Game`.
+ * Everything is optional, so only override what you care about.
+ */
+public interface GameListener {
+	default void scoreChanged(int score) {}
+	default void gameOver(int finalScore) {}
+	default void blockSpawned() {}
+	default void blockLocked() {}
+	default void linesCleared(int count) {}
+}
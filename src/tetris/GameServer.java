@@ -0,0 +1,426 @@
+package tetris;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Runs a game per connection, with the server deciding what happens (clients only send keys).
+ * A few event loops each own a `Selector` and a share of the sessions: they read inputs
+ * as they arrive, step every game they own once per tick and send each client its state
+ * (see `Protocol`). No thread per connection, and nothing static is shared, so thousands
+ * of sessions fit on one box.
+ *
+ * Usage: GameServer [--port P] [--loops N] [--max-width W] [--max-height H]
+ * A client that asks for a bigger board than the max gets closed.
+ * A client that can't keep up with its state gets dropped instead of buffering forever.
+ */
+public class GameServer {
+	static final int IN_CAPACITY = 1024;
+	static final int OUT_CAPACITY = 64 * 1024; // about a second of state, any more behind and you're dropped
+	
+	int port = 7777;
+	int loopCount = Math.max(1, Runtime.getRuntime().availableProcessors());
+	int maxWidth = Board.MAX_WIDTH;
+	int maxHeight = 1000; // Board allows up to Short.MAX_VALUE, that's a lot of memory per session
+	ServerSocketChannel server;
+	Loop[] loops;
+	Thread[] threads;
+	volatile boolean running;
+	int nextLoop; // round robin for new sessions
+	
+	public static void main(String[] args) {
+		GameServer server = new GameServer();
+		try {
+			for(int i=0; i < args.length; ++i) {
+				switch(args[i]) {
+				case "--port":
+					server.port = Integer.parseInt(args[++i]);
+					break;
+				case "--loops":
+					server.loopCount = Integer.parseInt(args[++i]);
+					break;
+				case "--max-width":
+					server.maxWidth = Integer.parseInt(args[++i]);
+					break;
+				case "--max-height":
+					server.maxHeight = Integer.parseInt(args[++i]);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown argument " + args[i]);
+				}
+			}
+		} catch(Exception e) {
+			System.out.println(e.getMessage() + " while reading arguments");
+			System.out.println("Usage: GameServer [--port P] [--loops N] [--max-width W] [--max-height H]");
+			return;
+		}
+		
+		try {
+			server.start();
+			System.out.println("Serving on port " + server.getPort() + " with " + server.loopCount + " loops");
+			for(Thread thread: server.threads) {
+				thread.join();
+			}
+		} catch(Exception e) {
+			System.out.println(e.getMessage() + " occured in GameServer");
+		}
+	}
+	
+	/**
+	 * Binds the port (0 picks a free one) and starts the loops
+	 */
+	public void start() throws IOException {
+		server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress(port), 1024);
+		server.configureBlocking(false);
+		
+		running = true;
+		loops = new Loop[loopCount];
+		threads = new Thread[loopCount];
+		for(int i=0; i < loopCount; ++i) {
+			loops[i] = new Loop();
+		}
+		// The first loop accepts for everyone
+		server.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+		for(int i=0; i < loopCount; ++i) {
+			threads[i] = new Thread(loops[i], "game-loop-" + i);
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+	}
+	
+	public int getPort() {
+		return server.socket().getLocalPort();
+	}
+	
+	public void stop() {
+		running = false;
+		for(Loop loop: loops) {
+			loop.selector.wakeup();
+		}
+	}
+	
+	/**
+	 * Sessions across every loop
+	 */
+	public int sessionCount() {
+		int count = 0;
+		for(Loop loop: loops) {
+			count += loop.sessionCount;
+		}
+		return count;
+	}
+	
+	/**
+	 * Hands a new connection to the next loop
+	 */
+	void accept() throws IOException {
+		SocketChannel channel;
+		while((channel = server.accept()) != null) {
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			Loop loop = loops[nextLoop];
+			nextLoop = (nextLoop + 1) % loops.length;
+			loop.pending.add(channel);
+			if(loop != loops[0]) {
+				loop.selector.wakeup();
+			}
+		}
+	}
+	
+	/**
+	 * One thread's share of the sessions
+	 */
+	class Loop implements Runnable {
+		final Selector selector;
+		final ConcurrentLinkedQueue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+		final List<Session> sessions = new ArrayList<>();
+		volatile int sessionCount;
+		final long tickLength = 1_000_000_000L / Game.TICK_RATE;
+		
+		Loop() throws IOException {
+			selector = Selector.open();
+		}
+		
+		@Override
+		public void run() {
+			long nextTick = System.nanoTime() + tickLength;
+			try {
+				while(running) {
+					long wait = (nextTick - System.nanoTime()) / 1_000_000;
+					if(wait > 0) {
+						selector.select(wait);
+					}
+					else {
+						selector.selectNow();
+					}
+					
+					SocketChannel channel;
+					while((channel = pending.poll()) != null) {
+						Session session = new Session(channel, maxWidth, maxHeight);
+						session.key = channel.register(selector, SelectionKey.OP_READ, session);
+						sessions.add(session);
+					}
+					
+					Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+					while(keys.hasNext()) {
+						SelectionKey key = keys.next();
+						keys.remove();
+						if(!key.isValid()) {
+							continue;
+						}
+						if(key.isAcceptable()) {
+							accept();
+							continue;
+						}
+						Session session = (Session) key.attachment();
+						if(key.isReadable()) {
+							session.read();
+						}
+						if(key.isValid() && key.isWritable()) {
+							session.flush();
+						}
+					}
+					
+					// Same catch-up rule as the window's driver
+					int steps = 0;
+					long now = System.nanoTime();
+					while(now >= nextTick && steps < Controller.MAX_CATCH_UP) {
+						tick();
+						nextTick += tickLength;
+						++steps;
+					}
+					if(now >= nextTick) {
+						nextTick = now + tickLength;
+					}
+				}
+			} catch(IOException e) {
+				System.out.println(e.getMessage() + " stopped a game loop");
+			}
+			for(Session session: sessions) {
+				session.close();
+			}
+		}
+		
+		/**
+		 * Steps every game once and sends out what happened
+		 */
+		void tick() {
+			for(int i=0; i < sessions.size(); ++i) {
+				Session session = sessions.get(i);
+				if(!session.open) {
+					// swap the last one in instead of shifting the whole list
+					sessions.set(i, sessions.get(sessions.size() - 1));
+					sessions.remove(sessions.size() - 1);
+					--i;
+					continue;
+				}
+				session.tick();
+			}
+			sessionCount = sessions.size();
+		}
+	}
+	
+	/**
+	 * One client and its game
+	 */
+	static class Session {
+		final SocketChannel channel;
+		SelectionKey key;
+		Game game;
+		final ByteBuffer in;
+		ByteBuffer out; // grows if the client picks a board too big for OUT_CAPACITY
+		final int maxWidth;
+		final int maxHeight;
+		long[] sentRows; // the board as the client last saw it
+		int sentTop; // everything above this row was empty when we last sent it
+		boolean playing;
+		boolean open = true;
+		
+		Session(SocketChannel channel, int maxWidth, int maxHeight) {
+			this.channel = channel;
+			this.maxWidth = maxWidth;
+			this.maxHeight = maxHeight;
+			game = new Game();
+			in = ByteBuffer.allocate(IN_CAPACITY);
+			out = ByteBuffer.allocateDirect(OUT_CAPACITY);
+			sentRows = new long[game.getBoard().height];
+			sentTop = sentRows.length;
+		}
+		
+		void read() {
+			try {
+				if(channel.read(in) < 0) {
+					close();
+					return;
+				}
+			} catch(IOException e) {
+				close();
+				return;
+			}
+			in.flip();
+			while(open && in.hasRemaining()) {
+				byte type = in.get(in.position());
+				if(type == Protocol.START) {
+					if(in.remaining() < Protocol.START_SIZE) {
+						break;
+					}
+					in.get();
+					long seed = in.getLong();
+					int width = in.get() & 0xFF;
+					int height = in.getShort();
+					if(width != game.getBoard().width || height != game.getBoard().height) {
+						if(width > maxWidth || height > maxHeight) {
+							close();
+							break;
+						}
+						try {
+							game = new Game(width, height);
+						} catch(IllegalArgumentException e) {
+							close();
+							break;
+						}
+						sentRows = new long[height];
+						grow(outCapacity(width, height));
+					}
+					game.start(seed);
+					playing = true;
+					for(int y=0; y < sentRows.length; ++y) {
+						sentRows[y] = -1; // so the first tick sends the whole board
+					}
+					sentTop = 0;
+				}
+				else if(type == Protocol.INPUT) {
+					if(in.remaining() < Protocol.INPUT_SIZE) {
+						break;
+					}
+					in.get();
+					int seq = in.getInt();
+					int input = in.get();
+					if(input < 0 || input >= Input.VALUES.length) {
+						close();
+						break;
+					}
+					// only ACK what the game will actually see, so clients don't time inputs that did nothing
+					boolean queued = playing && game.offer(Input.VALUES[input], game.getTick());
+					if(queued && reserve(Protocol.ACK_SIZE)) {
+						Protocol.putAck(out, seq, game.getTick());
+					}
+					else if(!queued && reserve(Protocol.NAK_SIZE)) {
+						Protocol.putNak(out, seq, game.getTick());
+					}
+				}
+				else {
+					// not speaking our language
+					close();
+				}
+			}
+			in.compact();
+			flush();
+		}
+		
+		void tick() {
+			if(!playing) {
+				return;
+			}
+			game.step();
+			if(!reserve(Protocol.STATE_SIZE)) {
+				return;
+			}
+			Protocol.putState(out, game);
+			
+			// Rows above both the stack and what we last sent are empty on both sides,
+			// so only the stack gets compared, however tall the board is
+			Board board = game.getBoard();
+			int top = Math.min(board.stackTop(), sentTop);
+			boolean changed = false;
+			for(int y=top; y < sentRows.length; ++y) {
+				if(sentRows[y] != board.rows[y]) {
+					sentRows[y] = board.rows[y];
+					changed = true;
+				}
+			}
+			if(changed) {
+				sentTop = board.stackTop();
+				if(reserve(Protocol.boardSize(board.width, board.height, sentTop))) {
+					Protocol.putBoard(out, board, sentTop);
+				}
+			}
+			if(game.isOver() && reserve(Protocol.GAME_OVER_SIZE)) {
+				Protocol.putGameOver(out, game);
+				playing = false;
+			}
+			flush();
+		}
+		
+		/**
+		 * Room for a few whole boards, so a big board can't get its client dropped the first time it's sent
+		 */
+		static int outCapacity(int width, int height) {
+			return Math.max(OUT_CAPACITY, 4 * Protocol.boardSize(width, height, 0));
+		}
+		
+		/**
+		 * Swaps `out` for a bigger one if it's smaller than `capacity`, keeping anything not sent yet
+		 */
+		void grow(int capacity) {
+			if(out.capacity() >= capacity) {
+				return;
+			}
+			ByteBuffer bigger = ByteBuffer.allocateDirect(capacity);
+			out.flip();
+			bigger.put(out);
+			out = bigger;
+		}
+		
+		/**
+		 * Makes sure `bytes` more fit in `out`, dropping the client if they don't
+		 */
+		boolean reserve(int bytes) {
+			if(open && out.remaining() < bytes) {
+				close();
+			}
+			return open;
+		}
+		
+		/**
+		 * Sends as much of `out` as the socket takes, and waits for OP_WRITE if it didn't take it all
+		 */
+		void flush() {
+			if(!open) {
+				return;
+			}
+			out.flip();
+			try {
+				channel.write(out);
+			} catch(IOException e) {
+				out.clear();
+				close();
+				return;
+			}
+			out.compact();
+			int interest = out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+			if(key.interestOps() != interest) {
+				key.interestOps(interest);
+			}
+		}
+		
+		void close() {
+			open = false;
+			try {
+				channel.close();
+			} catch(IOException e) {
+				System.out.println(e.getMessage() + " closing a session");
+			}
+		}
+	}
+}
@@ -0,0 +1,12 @@
+package tetris;
+
+/**
+ * The states `Controller.update()` moves between.
+ */
+public enum GameState {
+	WAITING,       // about to spawn a block
+	FALLING,       // a block is falling and taking input
+	BREAK_CHECK,   // the block landed, look for full rows
+	BREAK_HANDLER, // showing the broken rows, then dropping what's above them
+	GAME_OVER
+}
@@ -0,0 +1,187 @@
+package tetris;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * Plays games with no window as fast as the CPU allows
+ * and reports how many games and ticks a second that works out to.
+ * Nothing in here (or in `Game`) needs JavaFX on the classpath.
+ *
+ * Usage: HeadlessRunner [--games N] [--seed S] [--script FILE] [--bot] [--max-ticks T] [--record DIR] [--width W] [--height H] [--weights FILE]
+ * Without a script or the bot every game gets random inputs.
+ * A script is one "tick INPUT" pair per line (e.g. "30 LEFT"), played into every game.
+ * --record writes a replay of every game into DIR (see `ReplayPlayer`).
+ * --width and --height change the board from 10x20 (up to 64x32767).
+ * --weights has the bot play with weights from a file (see `WeightOptimizer`).
+ */
+public class HeadlessRunner {
+	int games = 1000;
+	long seed = 1;
+	long maxTicks = 1_000_000; // in case a script manages to never lose
+	List<Long> scriptTicks; // null means random inputs
+	List<Input> scriptInputs;
+	Bot bot; // null unless --bot
+	boolean useBot;
+	Weights weights = new Weights();
+	String recordDir; // null unless --record
+	int width = Board.DEFAULT_WIDTH;
+	int height = Board.DEFAULT_HEIGHT;
+	
+	public static void main(String[] args) {
+		HeadlessRunner runner = new HeadlessRunner();
+		try {
+			runner.parseArgs(args);
+		} catch(Exception e) {
+			System.out.println(e.getMessage() + " while reading arguments");
+			System.out.println("Usage: HeadlessRunner [--games N] [--seed S] [--script FILE] [--bot] [--max-ticks T] [--record DIR] [--width W] [--height H] [--weights FILE]");
+			return;
+		}
+		runner.run();
+	}
+	
+	public void parseArgs(String[] args) throws Exception {
+		for(int i=0; i < args.length; ++i) {
+			switch(args[i]) {
+			case "--games":
+				games = Integer.parseInt(args[++i]);
+				break;
+			case "--seed":
+				seed = Long.parseLong(args[++i]);
+				break;
+			case "--max-ticks":
+				maxTicks = Long.parseLong(args[++i]);
+				break;
+			case "--script":
+				readScript(new File(args[++i]));
+				break;
+			case "--bot":
+				useBot = true;
+				break;
+			case "--record":
+				recordDir = args[++i];
+				new File(recordDir).mkdirs();
+				break;
+			case "--weights":
+				weights = Weights.load(args[++i]);
+				break;
+			case "--width":
+				width = Integer.parseInt(args[++i]);
+				break;
+			case "--height":
+				height = Integer.parseInt(args[++i]);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown argument " + args[i]);
+			}
+		}
+		if(useBot) {
+			bot = new Bot(weights, null);
+		}
+	}
+	
+	/**
+	 * Reads "tick INPUT" lines, which have to be in tick order
+	 */
+	public void readScript(File file) throws Exception {
+		scriptTicks = new ArrayList<>();
+		scriptInputs = new ArrayList<>();
+		Scanner scanner = new Scanner(file);
+		while(scanner.hasNextLine()) {
+			String line = scanner.nextLine().trim();
+			if(line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] strings = line.split("\\s+");
+			scriptTicks.add(Long.parseLong(strings[0]));
+			scriptInputs.add(Input.valueOf(strings[1]));
+		}
+		scanner.close();
+	}
+	
+	public void run() {
+		Game game = new Game(width, height);
+		ReplayRecorder recorder = null;
+		if(recordDir != null) {
+			recorder = new ReplayRecorder();
+			game.setRecorder(recorder);
+		}
+		long totalTicks = 0;
+		long totalScore = 0;
+		long totalLines = 0;
+		long totalBlocks = 0;
+		
+		long startTime = System.nanoTime();
+		for(int g=0; g < games; ++g) {
+			game.start(seed + g);
+			if(bot != null) {
+				playBot(game, bot);
+			}
+			else if(scriptTicks == null) {
+				playRandom(game, new Random(seed + g));
+			}
+			else {
+				playScript(game);
+			}
+			if(recorder != null) {
+				try {
+					recorder.write(recordDir + File.separator + (seed + g) + ".replay");
+				} catch(Exception e) {
+					System.out.println(e.getMessage() + " while writing a replay");
+				}
+			}
+			totalTicks += game.getTick();
+			totalScore += game.getScore();
+			totalLines += game.getLines();
+			totalBlocks += game.getBlocks();
+		}
+		double seconds = (System.nanoTime() - startTime) * 1.0e-9;
+		
+		System.out.printf("games: %d  ticks: %d  time: %.3fs%n", games, totalTicks, seconds);
+		System.out.printf("games/sec: %.1f  ticks/sec: %.0f%n", games / seconds, totalTicks / seconds);
+		System.out.printf("avg score: %.1f  avg lines: %.2f  avg blocks: %.1f%n",
+				(double) totalScore / games, (double) totalLines / games, (double) totalBlocks / games);
+		if(bot != null && bot.getTable() != null) {
+			System.out.println(bot.getTable().summary());
+		}
+	}
+	
+	/**
+	 * Mashes a random key about every eighth tick until the game ends
+	 */
+	void playRandom(Game game, Random rand) {
+		while(!game.isOver() && game.getTick() < maxTicks) {
+			if(rand.nextInt(8) == 0) {
+				game.offer(Input.VALUES[rand.nextInt(Input.VALUES.length)], game.getTick());
+			}
+			game.step();
+		}
+	}
+	
+	/**
+	 * Lets the bot play until it loses (or we hit --max-ticks)
+	 */
+	void playBot(Game game, Bot bot) {
+		while(!game.isOver() && game.getTick() < maxTicks) {
+			bot.play(game);
+			game.step();
+		}
+	}
+	
+	/**
+	 * Plays the script's inputs on their ticks, then lets gravity finish the game
+	 */
+	void playScript(Game game) {
+		int next = 0;
+		while(!game.isOver() && game.getTick() < maxTicks) {
+			while(next < scriptTicks.size() && scriptTicks.get(next) <= game.getTick()) {
+				game.offer(scriptInputs.get(next), game.getTick());
+				++next;
+			}
+			game.step();
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package tetris;
+
+/**
+ * Everything the player can ask a falling block to do.
+ */
+public enum Input {
+	ROTATE,
+	LEFT,
+	RIGHT,
+	SOFT_DROP_ON,
+	SOFT_DROP_OFF,
+	HARD_DROP;
+	
+	// values() makes a new array every call, so hand this one out instead
+	static final Input[] VALUES = values();
+}
@@ -0,0 +1,98 @@
+package tetris;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-producer/single-consumer ring buffer of timestamped inputs.
+ * Key handlers `offer()` and the game loop `drain()`s, neither side ever
+ * blocks, and nothing is allocated per input.
+ * If the game falls so far behind that the buffer fills up, new inputs are dropped.
+ */
+public class InputQueue {
+	
+	/**
+	 * Gets handed each input as it's drained
+	 */
+	public interface Handler {
+		void handle(Input input, long time);
+	}
+	
+	final int capacity;
+	final int mask;
+	final byte[] inputs; // Input ordinals
+	final long[] times; // when each input happened, in System.nanoTime() units
+	
+	// tail is only written by the producer, head only by the consumer
+	final AtomicLong head = new AtomicLong(); // next slot to read
+	final AtomicLong tail = new AtomicLong(); // next slot to write
+	
+	/**
+	 * @param capacity rounded up to a power of two
+	 */
+	public InputQueue(int capacity) {
+		this.capacity = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		mask = this.capacity - 1;
+		inputs = new byte[this.capacity];
+		times = new long[this.capacity];
+	}
+	
+	/**
+	 * Producer side. Returns false (and drops the input) if the buffer is full.
+	 */
+	public boolean offer(Input input, long time) {
+		long t = tail.get();
+		if(t - head.get() >= capacity) {
+			return false;
+		}
+		int i = (int) t & mask;
+		inputs[i] = (byte) input.ordinal();
+		times[i] = time;
+		tail.lazySet(t + 1); // publishes the slot to the consumer
+		return true;
+	}
+	
+	/**
+	 * Consumer side. Hands every waiting input to `handler`, oldest first.
+	 * Returns how many there were.
+	 */
+	public int drain(Handler handler) {
+		long h = head.get();
+		long t = tail.get();
+		for(long n=h; n < t; ++n) {
+			int i = (int) n & mask;
+			handler.handle(Input.VALUES[inputs[i]], times[i]);
+		}
+		head.lazySet(t); // hands the slots back to the producer
+		return (int) (t - h);
+	}
+	
+	/**
+	 * Consumer side. Like `drain()`, but stops at the first input that happened after `until`
+	 * and leaves it (and everything behind it) waiting. Inputs come from one producer, so they're in time order.
+	 */
+	public int drain(Handler handler, long until) {
+		long h = head.get();
+		long t = tail.get();
+		long n = h;
+		for(; n < t; ++n) {
+			int i = (int) n & mask;
+			if(times[i] > until) {
+				break;
+			}
+			handler.handle(Input.VALUES[inputs[i]], times[i]);
+		}
+		head.lazySet(n);
+		return (int) (n - h);
+	}
+	
+	/**
+	 * Consumer side. Throws away everything waiting.
+	 */
+	public void clear() {
+		head.lazySet(tail.get());
+	}
+	
+	public int size() {
+		return (int) (tail.get() - head.get());
+	}
+}
@@ -0,0 +1,99 @@
+package tetris;
+
+/**
+ * Counts how long something took, in nanoseconds, in a fixed number of buckets.
+ * Below 16ns every value gets its own bucket; above that each power of two is
+ * split into 16, so any percentile is off by at most 1/16th (6%).
+ * Recording is a couple of shifts and an increment, it never allocates.
+ */
+public class LatencyHistogram {
+	static final int SUB_BITS = 4;
+	static final int SUB_BUCKETS = 1 << SUB_BITS;
+	static final int MAX_SHIFT = 40; // tops out around 2^44ns, about 5 hours
+	static final int BUCKETS = SUB_BUCKETS + (MAX_SHIFT + 1) * SUB_BUCKETS;
+	
+	final long[] counts = new long[BUCKETS];
+	long count;
+	long sum;
+	long max;
+	
+	public void record(long nanos) {
+		if(nanos < 0) {
+			nanos = 0;
+		}
+		++counts[bucket(nanos)];
+		++count;
+		sum += nanos;
+		if(nanos > max) {
+			max = nanos;
+		}
+	}
+	
+	static int bucket(long value) {
+		if(value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+		if(shift > MAX_SHIFT) {
+			return BUCKETS - 1;
+		}
+		// the top 5 bits of value are 1xxxx, xxxx picks the sub bucket
+		return SUB_BUCKETS + shift * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+	}
+	
+	/**
+	 * The biggest value that lands in `bucket`
+	 */
+	static long highestIn(int bucket) {
+		if(bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+		long sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+		return ((SUB_BUCKETS + sub + 1) << shift) - 1;
+	}
+	
+	/**
+	 * The value `p` (0 to 1) of recordings are at or below, give or take 6%
+	 */
+	public long percentile(double p) {
+		if(count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(p * count));
+		long seen = 0;
+		for(int i=0; i < BUCKETS; ++i) {
+			seen += counts[i];
+			if(seen >= rank) {
+				return Math.min(highestIn(i), max);
+			}
+		}
+		return max;
+	}
+	
+	public long getCount() {
+		return count;
+	}
+	public long getMax() {
+		return max;
+	}
+	public double getMean() {
+		return count == 0 ? 0 : (double) sum / count;
+	}
+	
+	public void reset() {
+		for(int i=0; i < BUCKETS; ++i) {
+			counts[i] = 0;
+		}
+		count = 0;
+		sum = 0;
+		max = 0;
+	}
+	
+	public void copyFrom(LatencyHistogram other) {
+		System.arraycopy(other.counts, 0, counts, 0, BUCKETS);
+		count = other.count;
+		sum = other.sum;
+		max = other.max;
+	}
+}
@@ -1,10 +1,6 @@
 package tetris;
 
-import java.io.File;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Scanner;
 
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.Pane;
@@ -13,7 +9,7 @@ import javafx.scene.text.Font;
 import javafx.scene.text.Text;
 
 /**
- * UI element generated by parsing `scores.txt`
+ * UI element showing the best scores ever saved
  * @author John Meyering
  *
  */
@@ -56,37 +52,23 @@ public class Leaderboard extends Pane {
 	}
 	
 	/**
-	 * Reads entries from `scores.txt` into `entries`
+	 * Takes the top scores from `Tetris.scoreIndex`, which already has them sorted
 	 */
 	public void readEntries() {
-		entries = new ArrayList<>();
-		try {
-			File file = new File("scores.txt");
-			Scanner scanner = new Scanner(file);
-			while(scanner.hasNextLine()) {
-				String line = scanner.nextLine();
-				Entry newEntry = new Entry(line);
-				entries.add(newEntry);
-			}
-			scanner.close();
-		} catch(Exception e) {
-			System.out.println(e.getMessage() + " in Leaderboard.readEntries()");
-		}
+		entries = Tetris.scoreIndex.top();
 	}
 	
 	/**
 	 * Generates an entry for the top 6 scores in `entries`
 	 */
 	public void displayEntries() {
-		Collections.sort(entries);
 		for(int i=0; i < 6; ++i) {
 			if(i < entries.size()) {
-				// just in case the scores file was tampered with
-				
+				// there might not be 6 games saved yet
 				Entry curr = entries.get(i);
 				// The date
 				Text date = new Text(curr.date);
-				date.setFont(Tetris.font);
+				Tetris.useFont(date.fontProperty());
 				date.setFill(Color.WHITE);
 				date.setLayoutX(30);
 				date.setLayoutY(112 + (i * 50));
@@ -94,7 +76,7 @@ public class Leaderboard extends Pane {
 				
 				// The score
 				Text score = new Text(curr.score.toString());
-				score.setFont(Tetris.font);
+				Tetris.useFont(score.fontProperty());
 				score.setFill(Color.WHITE);
 				score.setLayoutX(400);
 				score.setLayoutY(112 + (i * 50));
@@ -104,7 +86,7 @@ public class Leaderboard extends Pane {
 	}
 	
 	
-	public class Entry implements Comparable<Entry> {
+	public static class Entry implements Comparable<Entry> {
 		String date;
 		Integer score;
 		
@@ -114,6 +96,11 @@ public class Leaderboard extends Pane {
 			score = Integer.parseInt(strings[1]);
 		}
 		
+		public Entry(String date, int score) {
+			this.date = date;
+			this.score = score;
+		}
+		
 		@Override
 		public int compareTo(Entry entry) {
 			return (int) (entry.score - this.score);
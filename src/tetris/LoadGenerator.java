@@ -0,0 +1,346 @@
+package tetris;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Opens a pile of connections to a `GameServer`, presses random keys on all of them
+ * and reports how many sessions it's holding, how many ticks a second come back,
+ * and how long inputs take to be acknowledged.
+ *
+ * Usage: LoadGenerator [--host H] [--port P] [--sessions N] [--seconds S] [--rate R] [--loops L] [--width W] [--height H]
+ * Without --port it starts a server in the same process on a free loopback port (with L loops).
+ * R is key presses per second per session. Finished games are started again straight away.
+ * Every game is on a W x H board (10x20 unless told otherwise).
+ */
+public class LoadGenerator {
+	static final int MAX_OUTSTANDING = 256; // unanswered inputs before a client stops pressing (power of 2)
+	
+	String host = "127.0.0.1";
+	int port; // 0 means start our own server
+	int sessions = 1000;
+	int seconds = 10;
+	double rate = 4;
+	int loops = Math.max(1, Runtime.getRuntime().availableProcessors());
+	int width = Board.DEFAULT_WIDTH;
+	int height = Board.DEFAULT_HEIGHT;
+	
+	Selector selector;
+	Client[] clients;
+	Random rand = new Random(1);
+	LatencyHistogram ackLatency = new LatencyHistogram();
+	long ticks; // STATE messages, so ticks stepped for us across every session
+	long acks;
+	long naks; // inputs the server dropped
+	long sent;
+	long games; // finished games
+	long dropped; // sessions the server hung up on
+	
+	public static void main(String[] args) {
+		LoadGenerator generator = new LoadGenerator();
+		try {
+			for(int i=0; i < args.length; ++i) {
+				switch(args[i]) {
+				case "--host":
+					generator.host = args[++i];
+					break;
+				case "--port":
+					generator.port = Integer.parseInt(args[++i]);
+					break;
+				case "--sessions":
+					generator.sessions = Integer.parseInt(args[++i]);
+					break;
+				case "--seconds":
+					generator.seconds = Integer.parseInt(args[++i]);
+					break;
+				case "--rate":
+					generator.rate = Double.parseDouble(args[++i]);
+					break;
+				case "--loops":
+					generator.loops = Integer.parseInt(args[++i]);
+					break;
+				case "--width":
+					generator.width = Integer.parseInt(args[++i]);
+					break;
+				case "--height":
+					generator.height = Integer.parseInt(args[++i]);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown argument " + args[i]);
+				}
+			}
+		} catch(Exception e) {
+			System.out.println(e.getMessage() + " while reading arguments");
+			System.out.println("Usage: LoadGenerator [--host H] [--port P] [--sessions N] [--seconds S] [--rate R] [--loops L] [--width W] [--height H]");
+			return;
+		}
+		
+		try {
+			generator.run();
+		} catch(Exception e) {
+			System.out.println(e.getMessage() + " occured in LoadGenerator");
+		}
+	}
+	
+	public void run() throws IOException {
+		GameServer server = null;
+		if(port == 0) {
+			server = new GameServer();
+			server.port = 0;
+			server.loopCount = loops;
+			server.start();
+			port = server.getPort();
+			System.out.println("Started a server on port " + port + " with " + loops + " loops");
+		}
+		
+		selector = Selector.open();
+		clients = new Client[sessions];
+		for(int i=0; i < sessions; ++i) {
+			clients[i] = new Client(i);
+		}
+		
+		System.out.printf("%6s %9s %11s %10s %9s %9s %9s%n",
+				"second", "sessions", "ticks/sec", "acks/sec", "p50 us", "p99 us", "max us");
+		long intervalNanos = (long) (1.0e9 / rate);
+		long startTime = System.nanoTime();
+		long reportTime = startTime + 1_000_000_000L;
+		long lastTicks = 0;
+		long lastAcks = 0;
+		LatencyHistogram total = new LatencyHistogram();
+		int second = 0;
+		while(second < seconds) {
+			selector.select(1);
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while(keys.hasNext()) {
+				SelectionKey key = keys.next();
+				keys.remove();
+				Client client = (Client) key.attachment();
+				if(!key.isValid()) {
+					continue;
+				}
+				if(key.isConnectable()) {
+					client.connected();
+				}
+				if(key.isValid() && key.isReadable()) {
+					client.read();
+				}
+				if(key.isValid() && key.isWritable()) {
+					client.flush();
+				}
+			}
+			
+			long now = System.nanoTime();
+			for(Client client: clients) {
+				if(client.playing && now >= client.nextInput) {
+					client.press(now);
+					// jitter so they don't all press on the same millisecond
+					client.nextInput = now + intervalNanos / 2 + (long) (rand.nextDouble() * intervalNanos);
+				}
+			}
+			
+			if(now >= reportTime) {
+				++second;
+				int held = 0;
+				for(Client client: clients) {
+					if(client.playing) {
+						++held;
+					}
+				}
+				System.out.printf("%6d %9d %11d %10d %9.1f %9.1f %9.1f%n", second, held,
+						ticks - lastTicks, acks - lastAcks, ackLatency.percentile(0.5) / 1000.0,
+						ackLatency.percentile(0.99) / 1000.0, ackLatency.getMax() / 1000.0);
+				lastTicks = ticks;
+				lastAcks = acks;
+				merge(total, ackLatency);
+				ackLatency.reset();
+				reportTime += 1_000_000_000L;
+			}
+		}
+		
+		double elapsed = (System.nanoTime() - startTime) * 1.0e-9;
+		System.out.println();
+		System.out.printf("sessions: %d  dropped: %d  games finished: %d%n", sessions, dropped, games);
+		System.out.printf("ticks/sec: %.0f  inputs sent: %d  acked: %d  dropped by the server: %d%n", ticks / elapsed, sent, acks, naks);
+		System.out.printf("input to ack: p50 %.1fus  p99 %.1fus  p99.9 %.1fus  max %.1fus%n",
+				total.percentile(0.5) / 1000.0, total.percentile(0.99) / 1000.0,
+				total.percentile(0.999) / 1000.0, total.getMax() / 1000.0);
+		
+		for(Client client: clients) {
+			client.close();
+		}
+		if(server != null) {
+			server.stop();
+		}
+	}
+	
+	static void merge(LatencyHistogram into, LatencyHistogram from) {
+		for(int i=0; i < LatencyHistogram.BUCKETS; ++i) {
+			into.counts[i] += from.counts[i];
+		}
+		into.count += from.count;
+		into.sum += from.sum;
+		into.max = Math.max(into.max, from.max);
+	}
+	
+	/**
+	 * One fake player
+	 */
+	class Client {
+		final int id;
+		SocketChannel channel;
+		SelectionKey key;
+		// room for a whole board and then some, or a big BOARD would never fit and reading would stall
+		ByteBuffer in = ByteBuffer.allocate(Math.max(64 * 1024, 4 * Protocol.boardSize(width, height, 0)));
+		ByteBuffer out = ByteBuffer.allocate(1024);
+		long[] sentAt = new long[MAX_OUTSTANDING]; // send time by seq
+		int seq;
+		int answered; // inputs ACKed or NAKed, the server answers them in order
+		boolean playing;
+		long nextInput;
+		
+		Client(int id) throws IOException {
+			this.id = id;
+			channel = SocketChannel.open();
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			if(channel.connect(new InetSocketAddress(host, port))) {
+				key = channel.register(selector, SelectionKey.OP_READ, this);
+				startGame();
+			}
+			else {
+				key = channel.register(selector, SelectionKey.OP_CONNECT, this);
+			}
+		}
+		
+		void connected() {
+			try {
+				channel.finishConnect();
+			} catch(IOException e) {
+				System.out.println(e.getMessage() + " connecting session " + id);
+				close();
+				return;
+			}
+			key.interestOps(SelectionKey.OP_READ);
+			startGame();
+		}
+		
+		void startGame() {
+			Protocol.putStart(out, rand.nextLong(), width, height);
+			playing = true;
+			flush();
+		}
+		
+		void press(long now) {
+			// any more and `sentAt` would be overwritten before it's read
+			if(out.remaining() < Protocol.INPUT_SIZE || seq - answered >= MAX_OUTSTANDING) {
+				return;
+			}
+			sentAt[seq & (MAX_OUTSTANDING - 1)] = now;
+			Protocol.putInput(out, seq, Input.VALUES[rand.nextInt(Input.VALUES.length)]);
+			++seq;
+			++sent;
+			flush();
+		}
+		
+		void read() {
+			try {
+				if(channel.read(in) < 0) {
+					++dropped;
+					close();
+					return;
+				}
+			} catch(IOException e) {
+				++dropped;
+				close();
+				return;
+			}
+			long now = System.nanoTime();
+			in.flip();
+			while(in.hasRemaining()) {
+				byte type = in.get(in.position());
+				int size;
+				if(type == Protocol.ACK) {
+					size = Protocol.ACK_SIZE;
+				}
+				else if(type == Protocol.NAK) {
+					size = Protocol.NAK_SIZE;
+				}
+				else if(type == Protocol.STATE) {
+					size = Protocol.STATE_SIZE;
+				}
+				else if(type == Protocol.GAME_OVER) {
+					size = Protocol.GAME_OVER_SIZE;
+				}
+				else if(type == Protocol.BOARD) {
+					if(in.remaining() < Protocol.BOARD_HEADER_SIZE) {
+						break;
+					}
+					int height = in.getShort(in.position() + 1);
+					int width = in.get(in.position() + 3) & 0xFF;
+					int top = in.getShort(in.position() + 4);
+					size = Protocol.boardSize(width, height, top);
+				}
+				else {
+					System.out.println("Unknown message " + type + " on session " + id);
+					close();
+					return;
+				}
+				if(in.remaining() < size) {
+					break;
+				}
+				
+				int start = in.position();
+				if(type == Protocol.ACK) {
+					int acked = in.getInt(start + 1);
+					ackLatency.record(now - sentAt[acked & (MAX_OUTSTANDING - 1)]);
+					++acks;
+					++answered;
+				}
+				else if(type == Protocol.NAK) {
+					++naks;
+					++answered;
+				}
+				else if(type == Protocol.STATE) {
+					++ticks;
+				}
+				else if(type == Protocol.GAME_OVER) {
+					++games;
+					playing = false;
+					startGame();
+				}
+				in.position(start + size);
+			}
+			in.compact();
+		}
+		
+		void flush() {
+			out.flip();
+			try {
+				channel.write(out);
+			} catch(IOException e) {
+				out.clear();
+				close();
+				return;
+			}
+			out.compact();
+			if(key.isValid()) {
+				key.interestOps(out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+			}
+		}
+		
+		void close() {
+			playing = false;
+			try {
+				channel.close();
+			} catch(IOException e) {
+				System.out.println(e.getMessage() + " closing session " + id);
+			}
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package tetris;
+
+import java.util.Random;
+
+/**
+ * Deals out blocks from a seed, so the same seed always deals the same blocks.
+ * Keeps one block in hand so you can see what's coming next.
+ */
+public class PieceGenerator {
+	Random rand;
+	BlockType next;
+	
+	public PieceGenerator() {
+		rand = new Random();
+	}
+	
+	/**
+	 * Start dealing from `seed`
+	 */
+	public void reset(long seed) {
+		rand.setSeed(seed);
+		next = pick();
+	}
+	
+	/**
+	 * The next block, and deals another one into `peek()`
+	 */
+	public BlockType next() {
+		BlockType type = next;
+		next = pick();
+		return type;
+	}
+	
+	/**
+	 * What `next()` will return, without dealing it
+	 */
+	public BlockType peek() {
+		return next;
+	}
+	
+	private BlockType pick() {
+		// https://stackoverflow.com/questions/1972392/pick-a-random-value-from-an-enum
+		return BlockType.VALUES[rand.nextInt(BlockType.VALUES.length)];
+	}
+}
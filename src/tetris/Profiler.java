@@ -0,0 +1,88 @@
+package tetris;
+
+/**
+ * Times each phase of a pulse into its own `LatencyHistogram`.
+ * Only ever touched from the thread running the game, and `record` doesn't allocate,
+ * so it's cheap enough to leave on all the time.
+ * Press P in game to see it, and every game's numbers go in profiles/ when it ends.
+ */
+public class Profiler {
+	public enum Phase {
+		PULSE, // everything the driver does in one pulse
+		UPDATE, // one tick of `Controller.update()`
+		INPUT, // draining the input queue
+		BOT, // the bot deciding
+		CLEAR, // finding and removing full rows
+		RENDER // drawing the canvas (the tile renderer draws inside JavaFX, so it has none)
+	}
+	
+	final LatencyHistogram[] histograms;
+	long ticks; // ticks the driver ran
+	long droppedTicks; // ticks it threw away because it fell too far behind
+	long skippedPulses; // pulses that had to drop ticks
+	
+	public Profiler() {
+		histograms = new LatencyHistogram[Phase.values().length];
+		for(int i=0; i < histograms.length; ++i) {
+			histograms[i] = new LatencyHistogram();
+		}
+	}
+	
+	/**
+	 * `phase` started at `startNanos` (from `System.nanoTime()`) and just finished
+	 */
+	public void record(Phase phase, long startNanos) {
+		histograms[phase.ordinal()].record(System.nanoTime() - startNanos);
+	}
+	
+	/**
+	 * A pulse ran `steps` ticks and had to drop `dropped` more
+	 */
+	public void ticked(int steps, long dropped) {
+		ticks += steps;
+		if(dropped > 0) {
+			droppedTicks += dropped;
+			++skippedPulses;
+		}
+	}
+	
+	public LatencyHistogram get(Phase phase) {
+		return histograms[phase.ordinal()];
+	}
+	
+	public void reset() {
+		for(LatencyHistogram histogram: histograms) {
+			histogram.reset();
+		}
+		ticks = 0;
+		droppedTicks = 0;
+		skippedPulses = 0;
+	}
+	
+	/**
+	 * One line per phase, times in microseconds, then how many ticks got dropped
+	 */
+	public String summary() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("%-7s%8s%8s%8s%8s%8s%n", "us", "count", "p50", "p99", "p99.9", "max"));
+		for(Phase phase: Phase.values()) {
+			LatencyHistogram h = get(phase);
+			if(h.getCount() == 0) {
+				continue;
+			}
+			builder.append(String.format("%-7s%8d%8.1f%8.1f%8.1f%8.1f%n", phase.name().toLowerCase(), h.getCount(),
+					h.percentile(0.5) / 1000.0, h.percentile(0.99) / 1000.0, h.percentile(0.999) / 1000.0, h.getMax() / 1000.0));
+		}
+		builder.append(String.format("ticks %d, dropped %d in %d pulses%n", ticks, droppedTicks, skippedPulses));
+		return builder.toString();
+	}
+	
+	/**
+	 * `summary()`, then starts counting again
+	 */
+	public String summaryAndReset() {
+		String summary = summary();
+		reset();
+		return summary;
+	}
+}
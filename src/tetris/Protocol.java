@@ -0,0 +1,115 @@
+package tetris;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The wire format between `GameServer` and its clients.
+ * Every message is one type byte and then a fixed layout (big endian),
+ * except BOARD which says how big it is.
+ *
+ * Client to server:
+ *   START      seed (long), width (byte), height (short)   start a new game on a board that size
+ *   INPUT      seq (int), input (byte)            an `Input` ordinal, seq comes back in the ACK
+ * Server to client:
+ *   ACK        seq (int), tick (long)             the input is queued for the tick after `tick`
+ *   NAK        seq (int), tick (long)             the input was dropped (no game going, or too many queued)
+ *   STATE      tick (long), score (int), lines (int), state (byte),
+ *              block (byte, -1 for none), x (byte), y (short), rotation (byte)   every tick
+ *   BOARD      height (short), width (byte), top (short), then rows top to height - 1,
+ *              (width + 7) / 8 bytes each (bit x of a row is set when the cell is taken,
+ *              rows above `top` are empty)                                whenever the locked cells change
+ *   GAME_OVER  score (int), ticks (long)
+ */
+public class Protocol {
+	public static final byte START = 1;
+	public static final byte INPUT = 2;
+	public static final byte ACK = 3;
+	public static final byte STATE = 4;
+	public static final byte BOARD = 5;
+	public static final byte GAME_OVER = 6;
+	public static final byte NAK = 7;
+	
+	public static final int START_SIZE = 1 + 8 + 1 + 2;
+	public static final int INPUT_SIZE = 1 + 4 + 1;
+	public static final int ACK_SIZE = 1 + 4 + 8;
+	public static final int STATE_SIZE = 1 + 8 + 4 + 4 + 1 + 1 + 1 + 2 + 1;
+	public static final int BOARD_HEADER_SIZE = 1 + 2 + 1 + 2;
+	public static final int GAME_OVER_SIZE = 1 + 4 + 8;
+	public static final int NAK_SIZE = 1 + 4 + 8;
+	
+	/**
+	 * Bytes in a BOARD message for a board whose stack starts at row `top`
+	 */
+	public static int boardSize(int width, int height, int top) {
+		return BOARD_HEADER_SIZE + (height - top) * ((width + 7) / 8);
+	}
+	
+	public static void putStart(ByteBuffer out, long seed, int width, int height) {
+		out.put(START);
+		out.putLong(seed);
+		out.put((byte) width);
+		out.putShort((short) height);
+	}
+	
+	public static void putInput(ByteBuffer out, int seq, Input input) {
+		out.put(INPUT);
+		out.putInt(seq);
+		out.put((byte) input.ordinal());
+	}
+	
+	public static void putAck(ByteBuffer out, int seq, long tick) {
+		out.put(ACK);
+		out.putInt(seq);
+		out.putLong(tick);
+	}
+	
+	public static void putNak(ByteBuffer out, int seq, long tick) {
+		out.put(NAK);
+		out.putInt(seq);
+		out.putLong(tick);
+	}
+	
+	public static void putState(ByteBuffer out, Game game) {
+		out.put(STATE);
+		out.putLong(game.getTick());
+		out.putInt(game.getScore());
+		out.putInt(game.getLines());
+		out.put((byte) game.getState().ordinal());
+		Block block = game.getCurrentBlock();
+		if(block != null && game.getState() == GameState.FALLING) {
+			out.put((byte) block.blockType.ordinal());
+			out.put((byte) block.x);
+			out.putShort((short) block.y);
+			out.put((byte) block.state);
+		}
+		else {
+			out.put((byte) -1);
+			out.put((byte) 0);
+			out.putShort((short) 0);
+			out.put((byte) 0);
+		}
+	}
+	
+	/**
+	 * Sends the rows from `top` (at or above the top of the stack) down
+	 */
+	public static void putBoard(ByteBuffer out, Board board, int top) {
+		int rowBytes = (board.width + 7) / 8;
+		out.put(BOARD);
+		out.putShort((short) board.height);
+		out.put((byte) board.width);
+		out.putShort((short) top);
+		for(int y=top; y < board.height; ++y) {
+			long row = board.rows[y];
+			for(int b=0; b < rowBytes; ++b) {
+				out.put((byte) (row >>> (8 * b)));
+			}
+		}
+	}
+	
+	public static void putGameOver(ByteBuffer out, Game game) {
+		out.put(GAME_OVER);
+		out.putInt(game.getScore());
+		out.putLong(game.getTick());
+	}
+}
@@ -0,0 +1,154 @@
+package tetris;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * A recorded game, read back from what `ReplayRecorder` wrote.
+ * `play()` re-runs it on a headless `Game` as fast as it can go.
+ */
+public class Replay {
+	static final byte[] MAGIC = {'T', 'R', 'P', '2'};
+	
+	int tickRate;
+	long seed;
+	int width;
+	int height;
+	int count; // how many inputs
+	long[] ticks; // tick each input was applied on
+	byte[] inputs; // Input ordinals
+	long finalTick; // tick the game ended on, or -1 if it never finished
+	int finalScore;
+	
+	byte[] data;
+	int position;
+	
+	public static Replay read(String filename) throws IOException {
+		return read(Files.readAllBytes(Paths.get(filename)));
+	}
+	
+	public static Replay read(byte[] data) throws IOException {
+		Replay replay = new Replay();
+		replay.parse(data);
+		return replay;
+	}
+	
+	private void parse(byte[] bytes) throws IOException {
+		data = bytes;
+		position = 0;
+		for(int i=0; i < 3; ++i) {
+			if(position >= data.length || data[position] != MAGIC[i]) {
+				throw new IOException("Not a replay file");
+			}
+			++position;
+		}
+		if(position >= data.length || data[position] != MAGIC[3]) {
+			throw new IOException("Unknown replay version");
+		}
+		++position;
+		tickRate = (int) readVarint();
+		long zigzag = readVarint();
+		seed = (zigzag >>> 1) ^ -(zigzag & 1);
+		width = (int) readVarint();
+		height = (int) readVarint();
+		
+		ticks = new long[64];
+		inputs = new byte[64];
+		count = 0;
+		finalTick = -1;
+		long tick = 0;
+		while(position < data.length) {
+			long packed = readVarint();
+			tick += packed >>> 3;
+			int code = (int) (packed & 7);
+			if(code == ReplayRecorder.END) {
+				finalTick = tick;
+				finalScore = (int) readVarint();
+				break;
+			}
+			if(code >= Input.VALUES.length) {
+				throw new IOException("Bad input " + code + " in replay");
+			}
+			if(count == ticks.length) {
+				ticks = Arrays.copyOf(ticks, count * 2);
+				inputs = Arrays.copyOf(inputs, count * 2);
+			}
+			ticks[count] = tick;
+			inputs[count] = (byte) code;
+			++count;
+		}
+		data = null;
+	}
+	
+	private long readVarint() throws IOException {
+		long value = 0;
+		for(int shift=0; shift < 64; shift += 7) {
+			if(position >= data.length) {
+				throw new IOException("Replay ends in the middle of a number");
+			}
+			byte b = data[position];
+			++position;
+			value |= (long) (b & 0x7F) << shift;
+			if((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Varint too long in replay");
+	}
+	
+	/**
+	 * A game on a board the size this was recorded on
+	 */
+	public Game newGame() {
+		return new Game(width, height);
+	}
+	
+	/**
+	 * True if `game` is on a board the size this was recorded on, so it can play it
+	 */
+	public boolean fits(Game game) {
+		return game.getBoard().width == width && game.getBoard().height == height;
+	}
+	
+	/**
+	 * Plays the replay on `game` from the start, with no waiting between ticks.
+	 * Each input is queued just before the tick it was applied on, so it lands on the same tick again.
+	 */
+	public void play(Game game) {
+		game.start(seed);
+		int next = 0;
+		long lastTick = finalTick >= 0 ? finalTick : (count > 0 ? ticks[count - 1] : 0);
+		while(!game.isOver() && game.getTick() < lastTick) {
+			long upcoming = game.getTick() + 1;
+			while(next < count && ticks[next] <= upcoming) {
+				game.offer(Input.VALUES[inputs[next]], ticks[next]);
+				++next;
+			}
+			game.step();
+		}
+	}
+	
+	public long getSeed() {
+		return seed;
+	}
+	public int getTickRate() {
+		return tickRate;
+	}
+	public int getWidth() {
+		return width;
+	}
+	public int getHeight() {
+		return height;
+	}
+	public int getInputCount() {
+		return count;
+	}
+	public long getFinalTick() {
+		return finalTick;
+	}
+	public int getFinalScore() {
+		return finalScore;
+	}
+}
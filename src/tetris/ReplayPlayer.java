@@ -0,0 +1,53 @@
+package tetris;
+
+/**
+ * Plays replay files back with no window, checks they end on the score
+ * they were recorded with, and reports how much faster than real time that was.
+ *
+ * Usage: ReplayPlayer [--repeat N] FILE...
+ * Replays come from the UI (replays/) or from `HeadlessRunner --record DIR`.
+ */
+public class ReplayPlayer {
+	public static void main(String[] args) {
+		int repeat = 1;
+		Game game = new Game();
+		for(int i=0; i < args.length; ++i) {
+			if(args[i].equals("--repeat")) {
+				repeat = Integer.parseInt(args[++i]);
+				continue;
+			}
+			
+			Replay replay;
+			try {
+				replay = Replay.read(args[i]);
+			} catch(Exception e) {
+				System.out.println(e.getMessage() + " while reading " + args[i]);
+				continue;
+			}
+			if(replay.getTickRate() != Game.TICK_RATE) {
+				System.out.println(args[i] + " was recorded at " + replay.getTickRate()
+						+ " ticks/sec, run with -Dtetris.tickRate=" + replay.getTickRate());
+				continue;
+			}
+			
+			if(!replay.fits(game)) {
+				game = replay.newGame();
+			}
+			
+			long startTime = System.nanoTime();
+			for(int r=0; r < repeat; ++r) {
+				replay.play(game);
+			}
+			double seconds = (System.nanoTime() - startTime) * 1.0e-9 / repeat;
+			
+			double realSeconds = (double) game.getTick() / Game.TICK_RATE;
+			boolean matches = replay.getFinalTick() < 0
+					|| (game.getTick() == replay.getFinalTick() && game.getScore() == replay.getFinalScore());
+			System.out.printf("%s: seed %d, %d inputs, %d ticks, score %d (%s)%n",
+					args[i], replay.getSeed(), replay.getInputCount(), game.getTick(), game.getScore(),
+					matches ? "matches" : "expected " + replay.getFinalScore() + " at tick " + replay.getFinalTick());
+			System.out.printf("  %.1fs of play in %.3fms, %.0fx real time%n",
+					realSeconds, seconds * 1000, realSeconds / seconds);
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package tetris;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Writes down everything needed to play a game again: its seed and
+ * every input along with the tick it happened on.
+ *
+ * Format (see `Replay` for reading it back):
+ *   "TRP2", then varints for the tick rate, zigzagged seed, board width and board height,
+ *   then one varint per input: (ticks since the last input << 3) | input ordinal,
+ *   then (ticks since the last input << 3) | 7 to mark the end, and the final score.
+ * A game of a few thousand inputs comes out at a few KB.
+ */
+public class ReplayRecorder {
+	public static final int END = 7; // fits next to the 6 Inputs in 3 bits
+	
+	byte[] buffer;
+	int size;
+	long lastTick;
+	boolean finished;
+	
+	public ReplayRecorder() {
+		buffer = new byte[4096];
+	}
+	
+	/**
+	 * Start a new recording (throws away the old one)
+	 */
+	public void begin(long seed, int tickRate, int width, int height) {
+		size = 0;
+		lastTick = 0;
+		finished = false;
+		for(int i=0; i < 4; ++i) {
+			writeByte(Replay.MAGIC[i]);
+		}
+		writeVarint(tickRate);
+		writeVarint((seed << 1) ^ (seed >> 63)); // zigzag, so negative seeds stay short
+		writeVarint(width);
+		writeVarint(height);
+	}
+	
+	/**
+	 * `input` was applied during tick `tick`
+	 */
+	public void record(long tick, Input input) {
+		writeVarint(((tick - lastTick) << 3) | input.ordinal());
+		lastTick = tick;
+	}
+	
+	/**
+	 * The game ended on `tick` with `score`
+	 */
+	public void finish(long tick, int score) {
+		writeVarint(((tick - lastTick) << 3) | END);
+		writeVarint(score);
+		lastTick = tick;
+		finished = true;
+	}
+	
+	public boolean isFinished() {
+		return finished;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buffer, size);
+	}
+	
+	public void write(String filename) throws IOException {
+		try(FileOutputStream out = new FileOutputStream(filename)) {
+			out.write(buffer, 0, size);
+		}
+	}
+	
+	private void writeVarint(long value) {
+		// 7 bits at a time, high bit set on every byte but the last
+		while((value & ~0x7FL) != 0) {
+			writeByte((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		writeByte((byte) value);
+	}
+	
+	private void writeByte(byte b) {
+		if(size == buffer.length) {
+			buffer = Arrays.copyOf(buffer, size * 2);
+		}
+		buffer[size] = b;
+		++size;
+	}
+}
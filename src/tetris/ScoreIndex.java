@@ -0,0 +1,75 @@
+package tetris;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The best K scores ever saved, kept sorted in memory.
+ * The `ScoreStore` gets read once off the FX thread (see `Tetris.start`), after that
+ * `add()` slots each new score in as it's saved, so showing the leaderboard
+ * never has to touch the file again, however long it gets.
+ */
+public class ScoreIndex {
+	final int capacity;
+	final Leaderboard.Entry[] top; // best first, ties in the order they were saved
+	int size;
+	
+	public ScoreIndex(int capacity) {
+		this.capacity = capacity;
+		top = new Leaderboard.Entry[capacity];
+	}
+	
+	/**
+	 * Reads the first `count` games of a store into the index
+	 */
+	public void load(ScoreStore store, int count) {
+		GameEvents.LeaderboardLoad event = new GameEvents.LeaderboardLoad();
+		event.begin();
+		store.forEach(0, count, (long time, int score, int lines, int durationMillis) -> {
+			if(accepts(score)) {
+				add(new Leaderboard.Entry(ScoreWriter.Score.date(time), score));
+			}
+		});
+		event.source = "store";
+		event.entries = count;
+		event.commit();
+	}
+	
+	/**
+	 * Would a game with this score make it in?
+	 */
+	public synchronized boolean accepts(int score) {
+		return size < capacity || score > top[size - 1].score;
+	}
+	
+	/**
+	 * Slots `entry` in if it's good enough. O(K)
+	 */
+	public synchronized void add(Leaderboard.Entry entry) {
+		if(size == capacity && entry.score <= top[size - 1].score) {
+			return;
+		}
+		// Find the first entry it beats, shifting the rest down one
+		int i = size == capacity ? size - 1 : size;
+		while(i > 0 && top[i - 1].score < entry.score) {
+			top[i] = top[i - 1];
+			--i;
+		}
+		top[i] = entry;
+		if(size < capacity) {
+			++size;
+		}
+	}
+	
+	/**
+	 * A copy of the best scores so far, best first.
+	 * Still loading? You get the best of what's been read.
+	 */
+	public synchronized List<Leaderboard.Entry> top() {
+		List<Leaderboard.Entry> entries = new ArrayList<>(size);
+		for(int i=0; i < size; ++i) {
+			entries.add(top[i]);
+		}
+		return entries;
+	}
+}
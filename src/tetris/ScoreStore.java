@@ -0,0 +1,320 @@
+package tetris;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Every finished game, as fixed-width binary records in a memory-mapped file.
+ *
+ * Layout: a 16 byte header ("TSC1", version, flags, record count, all ints),
+ * then RECORD_SIZE bytes per game:
+ *   end time (epoch millis, long), score (int), lines (int), duration (millis, int), unused (int)
+ * The count in the header is written after the record, so a crash mid-append just loses that record.
+ *
+ * Games are (nearly always) appended in time order, so every INDEX_STRIDE-th record's time
+ * goes in a small in-memory index. A date range query binary searches that and
+ * only reads the records in the range, instead of the whole history.
+ * Opening only reads the records the index samples, and the UNORDERED flag
+ * remembers whether it can be trusted, so that doesn't need the whole history either.
+ */
+public class ScoreStore {
+	static final int MAGIC = 0x54534331; // "TSC1"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 16;
+	static final int FLAGS_OFFSET = 8;
+	static final int COUNT_OFFSET = 12;
+	static final int UNORDERED = 1; // a game was appended before an earlier one (clock changed)
+	static final int MIN_CAPACITY = 1024;
+	public static final int RECORD_SIZE = 24;
+	static final int INDEX_STRIDE = 256;
+	
+	RandomAccessFile file;
+	FileChannel channel;
+	MappedByteBuffer buffer;
+	int capacity; // records the current mapping has room for
+	int count;
+	
+	long[] index; // index[i] is the time of record i * INDEX_STRIDE
+	long lastTime;
+	boolean ordered = true; // false once a game was appended out of time order (clock changed), then we scan
+	
+	public interface Visitor {
+		void visit(long time, int score, int lines, int durationMillis);
+	}
+	
+	/**
+	 * Opens (or makes) a store.
+	 * If it doesn't exist yet and `legacyScores` does, the old text scores are moved over first.
+	 */
+	public static ScoreStore open(String filename, String legacyScores) throws IOException {
+		boolean fresh = !new File(filename).exists();
+		ScoreStore store = new ScoreStore(filename);
+		if(fresh && legacyScores != null && new File(legacyScores).exists()) {
+			int migrated = store.migrate(legacyScores);
+			System.out.println("Moved " + migrated + " scores from " + legacyScores + " to " + filename);
+		}
+		return store;
+	}
+	
+	public ScoreStore(String filename) throws IOException {
+		file = new RandomAccessFile(filename, "rw");
+		channel = file.getChannel();
+		if(channel.size() < HEADER_SIZE) {
+			map(MIN_CAPACITY);
+			buffer.putInt(0, MAGIC);
+			buffer.putInt(4, VERSION);
+			buffer.putInt(FLAGS_OFFSET, 0);
+			buffer.putInt(COUNT_OFFSET, 0);
+		}
+		else {
+			// never map less than MIN_CAPACITY, or doubling it on append would get nowhere
+			map(Math.max(MIN_CAPACITY, (int) ((channel.size() - HEADER_SIZE) / RECORD_SIZE)));
+			if(buffer.getInt(0) != MAGIC) {
+				throw new IOException(filename + " isn't a score store");
+			}
+		}
+		count = buffer.getInt(COUNT_OFFSET);
+		ordered = (buffer.getInt(FLAGS_OFFSET) & UNORDERED) == 0;
+		
+		// Only every INDEX_STRIDE-th record gets read
+		index = new long[Math.max(16, count / INDEX_STRIDE + 1)];
+		for(int i=0; i < count; i += INDEX_STRIDE) {
+			index[i / INDEX_STRIDE] = getTime(i);
+		}
+		if(count > 0) {
+			lastTime = getTime(count - 1); // the latest, if they're in order (and if not it doesn't matter)
+		}
+	}
+	
+	private void map(int records) throws IOException {
+		capacity = records;
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) records * RECORD_SIZE);
+	}
+	
+	/**
+	 * Adds a game to the end
+	 */
+	public synchronized void append(long time, int score, int lines, int durationMillis) throws IOException {
+		if(count == capacity) {
+			map(capacity * 2);
+		}
+		int position = HEADER_SIZE + count * RECORD_SIZE;
+		buffer.putLong(position, time);
+		buffer.putInt(position + 8, score);
+		buffer.putInt(position + 12, lines);
+		buffer.putInt(position + 16, durationMillis);
+		buffer.putInt(position + 20, 0);
+		
+		if(count % INDEX_STRIDE == 0) {
+			if(count / INDEX_STRIDE == index.length) {
+				index = Arrays.copyOf(index, index.length * 2);
+			}
+			index[count / INDEX_STRIDE] = time;
+		}
+		if(ordered && time < lastTime) {
+			ordered = false;
+			buffer.putInt(FLAGS_OFFSET, buffer.getInt(FLAGS_OFFSET) | UNORDERED);
+		}
+		lastTime = Math.max(lastTime, time);
+		
+		++count;
+		buffer.putInt(COUNT_OFFSET, count);
+	}
+	
+	public void append(ScoreWriter.Score score) throws IOException {
+		append(score.time, score.score, score.lines, (int) (score.ticks * 1000 / Game.TICK_RATE));
+	}
+	
+	/**
+	 * Makes sure everything appended so far is on the disk
+	 */
+	public synchronized void force() {
+		buffer.force();
+	}
+	
+	public synchronized void close() throws IOException {
+		buffer.force();
+		channel.close();
+		file.close();
+	}
+	
+	public synchronized int size() {
+		return count;
+	}
+	
+	public synchronized long getTime(int i) {
+		return buffer.getLong(HEADER_SIZE + i * RECORD_SIZE);
+	}
+	
+	/**
+	 * Visits records `from` (inclusive) to `to` (exclusive), in the order they were saved
+	 */
+	public synchronized void forEach(int from, int to, Visitor visitor) {
+		for(int i=from; i < to; ++i) {
+			visit(i, visitor);
+		}
+	}
+	
+	/**
+	 * Visits every game that ended between `fromTime` and `toTime` (epoch millis, inclusive)
+	 */
+	public synchronized void range(long fromTime, long toTime, Visitor visitor) {
+		if(!ordered) {
+			for(int i=0; i < count; ++i) {
+				long time = getTime(i);
+				if(time >= fromTime && time <= toTime) {
+					visit(i, visitor);
+				}
+			}
+			return;
+		}
+		for(int i=firstAtOrAfter(fromTime); i < count; ++i) {
+			if(getTime(i) > toTime) {
+				break;
+			}
+			visit(i, visitor);
+		}
+	}
+	
+	/**
+	 * The best `k` games between `fromTime` and `toTime`, best first
+	 */
+	public List<Leaderboard.Entry> best(long fromTime, long toTime, int k) {
+		ScoreIndex top = new ScoreIndex(k);
+		range(fromTime, toTime, (long time, int score, int lines, int durationMillis) -> {
+			if(top.accepts(score)) {
+				top.add(new Leaderboard.Entry(ScoreWriter.Score.date(time), score));
+			}
+		});
+		return top.top();
+	}
+	
+	/**
+	 * Index of the first record at or after `time`.
+	 * The sparse index narrows it to one stride, then we walk that stride.
+	 */
+	int firstAtOrAfter(long time) {
+		int blocks = (count + INDEX_STRIDE - 1) / INDEX_STRIDE;
+		// last block that starts before `time`
+		int low = 0;
+		int high = blocks - 1;
+		int block = 0;
+		while(low <= high) {
+			int middle = (low + high) >>> 1;
+			if(index[middle] < time) {
+				block = middle;
+				low = middle + 1;
+			}
+			else {
+				high = middle - 1;
+			}
+		}
+		int i = block * INDEX_STRIDE;
+		while(i < count && getTime(i) < time) {
+			++i;
+		}
+		return i;
+	}
+	
+	private void visit(int i, Visitor visitor) {
+		int position = HEADER_SIZE + i * RECORD_SIZE;
+		visitor.visit(buffer.getLong(position), buffer.getInt(position + 8),
+				buffer.getInt(position + 12), buffer.getInt(position + 16));
+	}
+	
+	/**
+	 * Moves the lines of an old scores.txt ("2020-11-17::12:00PM 1200") in, oldest first.
+	 * Those never saved lines or how long the game took, so they're 0.
+	 */
+	public int migrate(String filename) throws IOException {
+		List<long[]> games = new ArrayList<>();
+		try(BufferedReader in = new BufferedReader(new FileReader(filename))) {
+			String line;
+			while((line = in.readLine()) != null) {
+				try {
+					String[] strings = line.split(" ");
+					LocalDateTime written = LocalDateTime.parse(strings[0], ScoreWriter.DATE_FORMAT);
+					// The old saveScore() wrote the hour as (hour % 12) + 1, so 12:xxAM was really 11:xxAM,
+					// 01:xxAM was 12:xxAM and so on. Take the 1 back off without leaving the half of the day.
+					int hour = written.getHour();
+					written = written.withHour(hour / 12 * 12 + (hour + 11) % 12);
+					long time = written.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+					games.add(new long[] {time, Integer.parseInt(strings[1])});
+				} catch(Exception e) {
+					// just in case the scores file was tampered with
+					System.out.println(e.getMessage() + " while moving a line of " + filename);
+				}
+			}
+		}
+		games.sort((long[] a, long[] b) -> Long.compare(a[0], b[0])); // stable, so same-minute games keep their order
+		for(long[] game: games) {
+			append(game[0], (int) game[1], 0, 0);
+		}
+		force();
+		return games.size();
+	}
+	
+	/**
+	 * Usage: ScoreStore [--file scores.bin] [--from 2020-11-01] [--to 2020-11-30] [--week] [--top K]
+	 * Prints the best scores in the range (everything by default).
+	 */
+	public static void main(String[] args) {
+		String filename = "scores.bin";
+		long from = Long.MIN_VALUE;
+		long to = Long.MAX_VALUE;
+		int k = 10;
+		ZoneId zone = ZoneId.systemDefault();
+		try {
+			for(int i=0; i < args.length; ++i) {
+				switch(args[i]) {
+				case "--file":
+					filename = args[++i];
+					break;
+				case "--from":
+					from = LocalDate.parse(args[++i]).atStartOfDay(zone).toInstant().toEpochMilli();
+					break;
+				case "--to":
+					to = LocalDate.parse(args[++i]).plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli() - 1;
+					break;
+				case "--week":
+					from = System.currentTimeMillis() - 7L * 24 * 60 * 60 * 1000;
+					break;
+				case "--top":
+					k = Integer.parseInt(args[++i]);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown argument " + args[i]);
+				}
+			}
+		} catch(Exception e) {
+			System.out.println(e.getMessage() + " while reading arguments");
+			System.out.println("Usage: ScoreStore [--file scores.bin] [--from 2020-11-01] [--to 2020-11-30] [--week] [--top K]");
+			return;
+		}
+		
+		try {
+			ScoreStore store = open(filename, "scores.txt");
+			long startTime = System.nanoTime();
+			List<Leaderboard.Entry> best = store.best(from, to, k);
+			double millis = (System.nanoTime() - startTime) * 1.0e-6;
+			for(Leaderboard.Entry entry: best) {
+				System.out.println(entry.date + " " + entry.score);
+			}
+			System.out.printf("best %d of %d games, found in %.3fms%n", best.size(), store.size(), millis);
+			store.close();
+		} catch(Exception e) {
+			System.out.println(e.getMessage() + " occured in ScoreStore");
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package tetris;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends finished games to the `ScoreStore` on its own thread,
+ * so the game loop only ever drops a `Score` into a queue.
+ * Whatever piles up while a write is going gets written together as one batch.
+ *
+ * How hard it tries to get scores onto the disk:
+ *   -Dtetris.scoreFsync=true    fsync after every batch (default false, leave it to the OS)
+ *   -Dtetris.scoreLingerMs=N    wait up to N ms after a score for more to batch with it (default 0)
+ * `close()` writes out everything still queued and fsyncs once more.
+ */
+public class ScoreWriter {
+	// scores.txt dates look like 2020-11-17::12:00PM
+	public static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-M-d::hh:mma", Locale.US);
+	
+	static final Score CLOSE = new Score(0, 0, 0, 0); // tells the thread to finish up
+	
+	final CompletableFuture<ScoreStore> opening; // the store, once it's open
+	ScoreStore store;
+	final BlockingQueue<Score> queue;
+	final boolean fsync;
+	final long lingerMillis;
+	final Thread thread;
+	long dropped; // scores that didn't fit in the queue
+	long batches;
+	long written;
+	
+	public ScoreWriter(ScoreStore store, int capacity, boolean fsync, long lingerMillis) {
+		this(CompletableFuture.completedFuture(store), capacity, fsync, lingerMillis);
+	}
+	
+	/**
+	 * Scores can be offered straight away, they're only written once `opening` is done
+	 */
+	public ScoreWriter(CompletableFuture<ScoreStore> opening, int capacity) {
+		this(opening, capacity, Boolean.getBoolean("tetris.scoreFsync"), Long.getLong("tetris.scoreLingerMs", 0));
+	}
+	
+	public ScoreWriter(CompletableFuture<ScoreStore> opening, int capacity, boolean fsync, long lingerMillis) {
+		this.opening = opening;
+		this.fsync = fsync;
+		this.lingerMillis = lingerMillis;
+		queue = new ArrayBlockingQueue<>(capacity);
+		thread = new Thread(this::run, "score-writer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Queues a score to be written. Never blocks or touches the disk,
+	 * returns false (and the score is lost) if the queue is full.
+	 */
+	public boolean offer(Score score) {
+		if(queue.offer(score)) {
+			return true;
+		}
+		++dropped;
+		return false;
+	}
+	
+	/**
+	 * Writes out whatever is still queued and stops the thread.
+	 * Waits at most `timeoutMillis` for that to happen.
+	 */
+	public void close(long timeoutMillis) {
+		try {
+			if(queue.offer(CLOSE, timeoutMillis, TimeUnit.MILLISECONDS)) {
+				thread.join(timeoutMillis);
+			}
+		} catch(InterruptedException e) {
+			System.out.println(e.getMessage() + " while closing the score writer");
+		}
+	}
+	
+	private void run() {
+		try {
+			store = opening.join();
+		} catch(Exception e) {
+			System.out.println(e.getMessage() + " so scores won't be saved");
+		}
+		List<Score> batch = new ArrayList<>();
+		boolean closing = false;
+		while(!closing) {
+			try {
+				batch.add(queue.take());
+				if(lingerMillis > 0) {
+					Thread.sleep(lingerMillis);
+				}
+			} catch(InterruptedException e) {
+				System.out.println(e.getMessage() + " in ScoreWriter, writing what's left");
+				closing = true;
+			}
+			queue.drainTo(batch);
+			
+			GameEvents.ScoreSave event = new GameEvents.ScoreSave();
+			event.begin();
+			int appended = 0;
+			try {
+				for(Score score: batch) {
+					if(score == CLOSE) {
+						closing = true;
+						continue;
+					}
+					if(store != null) {
+						store.append(score);
+						++appended;
+						++written;
+					}
+				}
+				if(store != null && (fsync || closing)) {
+					store.force();
+					event.fsync = true;
+				}
+			} catch(Exception e) {
+				System.out.println(e.getMessage() + " occured in ScoreWriter");
+			}
+			event.scores = appended;
+			event.commit();
+			++batches;
+			batch.clear();
+		}
+	}
+	
+	/**
+	 * One finished game
+	 */
+	public static class Score {
+		final long time; // epoch millis when it ended
+		final int score;
+		final int lines;
+		final long ticks; // how long it lasted
+		
+		public Score(long time, int score, int lines, long ticks) {
+			this.time = time;
+			this.score = score;
+			this.lines = lines;
+			this.ticks = ticks;
+		}
+		
+		public String date() {
+			return date(time);
+		}
+		
+		/**
+		 * Epoch millis the way scores.txt wrote dates
+		 */
+		public static String date(long time) {
+			return LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault()).format(DATE_FORMAT);
+		}
+	}
+}
@@ -0,0 +1,343 @@
+package tetris;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets people watch a game over TCP.
+ * Once a tick the game thread calls `publish()`, which encodes the cells that changed
+ * into the next slot of a small ring of direct buffers and returns. A sender thread then
+ * writes that one buffer to every spectator, nobody gets their own copy.
+ *
+ * Frames: length (int, of the rest), type (byte), tick (long), then
+ *   KEYFRAME  width (short), height (short), the whole board as (run length varint, color byte) runs
+ *   DELTA     count (varint), then count of (cell index varint, color byte)
+ * Cell index is y * width + x, colors are `Board` palette indices.
+ *
+ * There's a keyframe every KEYFRAME_INTERVAL ticks. New spectators start at the next one,
+ * and so does anyone who falls behind (their socket won't take a whole frame).
+ * Whoever stays behind for MAX_MISSED_KEYFRAMES keyframes in a row gets dropped.
+ * If the sender thread itself falls behind, the game doesn't wait, it just sends a keyframe next.
+ */
+public class SpectatorBroadcaster {
+	public static final byte KEYFRAME = 1;
+	public static final byte DELTA = 2;
+	public static final int KEYFRAME_INTERVAL = Game.TICK_RATE; // once a second
+	static final int MAX_MISSED_KEYFRAMES = 3;
+	static final int SLOTS = 8; // power of two
+	static final int HEADER_SIZE = 4 + 1 + 8;
+	static final int SEND_BUFFER = 64 * 1024; // so a stuck spectator shows up quickly, not after megabytes
+	
+	final ByteBuffer[] slots;
+	final AtomicLong published = new AtomicLong(); // frames the game has written
+	final AtomicLong sent = new AtomicLong(); // frames the sender is done with
+	boolean keyframeNext = true; // game thread only
+	long lastKeyframeTick;
+	long lastFrameTick = -1; // tick of the newest frame handed to the sender
+	
+	ServerSocketChannel server;
+	Selector selector;
+	Thread thread;
+	volatile boolean running;
+	final List<Spectator> spectators = new ArrayList<>();
+	volatile int spectatorCount;
+	long framesSkipped; // frames the game couldn't hand over because the ring was full
+	long dropped; // spectators we hung up on
+	
+	/**
+	 * Room for frames of a board this big
+	 */
+	public SpectatorBroadcaster(int width, int height) {
+		// a delta can't name more cells than the board has, at worst 4 bytes each with the varint
+		int capacity = HEADER_SIZE + 5 + 4 * width * height;
+		slots = new ByteBuffer[SLOTS];
+		for(int i=0; i < SLOTS; ++i) {
+			slots[i] = ByteBuffer.allocateDirect(capacity);
+		}
+	}
+	
+	/**
+	 * Starts listening (port 0 picks a free one)
+	 */
+	public void start(int port) throws IOException {
+		selector = Selector.open();
+		server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress(port));
+		server.configureBlocking(false);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+		running = true;
+		thread = new Thread(this::run, "spectators");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	public int getPort() {
+		return server.socket().getLocalPort();
+	}
+	
+	public int getSpectatorCount() {
+		return spectatorCount;
+	}
+	
+	public void stop() {
+		running = false;
+		selector.wakeup();
+	}
+	
+	/**
+	 * Game thread: encode what changed this tick and hand it to the sender.
+	 * Never blocks. `board` has to be tracking changes (see `Board.setTracking`).
+	 */
+	public void publish(Board board, long tick) {
+		int count = board.takeChanges();
+		long frame = published.get();
+		if(frame - sent.get() >= SLOTS) {
+			// the sender is behind, so spectators will be missing this change and need a keyframe
+			++framesSkipped;
+			keyframeNext = true;
+			return;
+		}
+		if(count == 0 && !keyframeNext && tick - lastKeyframeTick < KEYFRAME_INTERVAL) {
+			return; // nothing to say
+		}
+		
+		ByteBuffer out = slots[(int) (frame & (SLOTS - 1))];
+		out.clear();
+		out.putInt(0); // length, filled in below
+		if(keyframeNext || tick - lastKeyframeTick >= KEYFRAME_INTERVAL) {
+			encodeKeyframe(out, board, tick);
+			keyframeNext = false;
+			lastKeyframeTick = tick;
+		}
+		else {
+			encodeDelta(out, board, tick, count);
+		}
+		out.putInt(0, out.position() - 4);
+		out.flip();
+		lastFrameTick = tick;
+		published.lazySet(frame + 1);
+		selector.wakeup();
+	}
+	
+	static void encodeKeyframe(ByteBuffer out, Board board, long tick) {
+		out.put(KEYFRAME);
+		out.putLong(tick);
+		out.putShort((short) board.width);
+		out.putShort((short) board.height);
+		byte[] cells = board.cells;
+		int i = 0;
+		while(i < cells.length) {
+			byte color = cells[i];
+			int run = 1;
+			while(i + run < cells.length && cells[i + run] == color) {
+				++run;
+			}
+			putVarint(out, run);
+			out.put(color);
+			i += run;
+		}
+	}
+	
+	static void encodeDelta(ByteBuffer out, Board board, long tick, int count) {
+		out.put(DELTA);
+		out.putLong(tick);
+		putVarint(out, count);
+		int[] changes = board.changed;
+		for(int n=0; n < count; ++n) {
+			int i = changes[n];
+			putVarint(out, i);
+			out.put(board.cells[i]);
+		}
+	}
+	
+	static void putVarint(ByteBuffer out, int value) {
+		while((value & ~0x7F) != 0) {
+			out.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.put((byte) value);
+	}
+	
+	public static int getVarint(ByteBuffer in) {
+		int value = 0;
+		for(int shift=0; ; shift += 7) {
+			byte b = in.get();
+			value |= (b & 0x7F) << shift;
+			if((b & 0x80) == 0) {
+				return value;
+			}
+		}
+	}
+	
+	/**
+	 * Sender thread: accept spectators and send every published frame to all of them
+	 */
+	private void run() {
+		try {
+			while(running) {
+				if(sent.get() == published.get()) {
+					selector.select(100);
+				}
+				else {
+					selector.selectNow();
+				}
+				
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while(keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if(!key.isValid()) {
+						continue;
+					}
+					if(key.isAcceptable()) {
+						accept();
+					}
+					else if(key.isWritable()) {
+						((Spectator) key.attachment()).finishPartial();
+					}
+					else if(key.isReadable()) {
+						((Spectator) key.attachment()).readClosed();
+					}
+				}
+				
+				long frame = sent.get();
+				while(frame < published.get()) {
+					ByteBuffer out = slots[(int) (frame & (SLOTS - 1))];
+					boolean keyframe = out.get(4) == KEYFRAME;
+					for(int i=0; i < spectators.size(); ++i) {
+						Spectator spectator = spectators.get(i);
+						if(spectator.open) {
+							spectator.send(out, keyframe);
+						}
+						if(!spectator.open) {
+							spectators.set(i, spectators.get(spectators.size() - 1));
+							spectators.remove(spectators.size() - 1);
+							--i;
+						}
+					}
+					++frame;
+					sent.lazySet(frame);
+				}
+				spectatorCount = spectators.size();
+			}
+		} catch(IOException e) {
+			System.out.println(e.getMessage() + " stopped the spectator broadcaster");
+		}
+		for(Spectator spectator: spectators) {
+			spectator.close();
+		}
+		try {
+			server.close();
+			selector.close();
+		} catch(IOException e) {
+			System.out.println(e.getMessage() + " closing the spectator broadcaster");
+		}
+	}
+	
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while((channel = server.accept()) != null) {
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			channel.socket().setSendBufferSize(SEND_BUFFER);
+			Spectator spectator = new Spectator(channel, slots[0].capacity());
+			// we only read to notice them leaving
+			spectator.key = channel.register(selector, SelectionKey.OP_READ, spectator);
+			spectators.add(spectator);
+		}
+	}
+	
+	/**
+	 * One watcher, only touched by the sender thread
+	 */
+	class Spectator {
+		final SocketChannel channel;
+		SelectionKey key;
+		final ByteBuffer partial; // the rest of a frame the socket didn't take in one go
+		boolean synced; // false until the next keyframe
+		int missedKeyframes;
+		boolean open = true;
+		
+		Spectator(SocketChannel channel, int capacity) {
+			this.channel = channel;
+			partial = ByteBuffer.allocateDirect(capacity);
+			partial.limit(0);
+		}
+		
+		void send(ByteBuffer frame, boolean keyframe) {
+			if(partial.hasRemaining()) {
+				// still stuck on an older frame, this one is lost and they'll resync at a keyframe
+				synced = false;
+				if(keyframe) {
+					++missedKeyframes;
+					if(missedKeyframes >= MAX_MISSED_KEYFRAMES) {
+						++dropped;
+						close();
+					}
+				}
+				return;
+			}
+			if(!synced) {
+				if(!keyframe) {
+					return;
+				}
+				synced = true;
+			}
+			missedKeyframes = 0;
+			
+			// Every spectator reads the same buffer, so put it back how we found it
+			int start = frame.position();
+			try {
+				channel.write(frame);
+			} catch(IOException e) {
+				close();
+				frame.position(start);
+				return;
+			}
+			if(frame.hasRemaining()) {
+				partial.clear();
+				partial.put(frame);
+				partial.flip();
+				key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			}
+			frame.position(start);
+		}
+		
+		void finishPartial() {
+			try {
+				channel.write(partial);
+			} catch(IOException e) {
+				close();
+				return;
+			}
+			if(!partial.hasRemaining()) {
+				key.interestOps(SelectionKey.OP_READ);
+			}
+		}
+		
+		/**
+		 * Spectators don't send anything, so a read means they hung up (or are misbehaving)
+		 */
+		void readClosed() {
+			close();
+		}
+		
+		void close() {
+			open = false;
+			try {
+				channel.close();
+			} catch(IOException e) {
+				System.out.println(e.getMessage() + " closing a spectator");
+			}
+		}
+	}
+}
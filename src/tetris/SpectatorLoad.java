@@ -0,0 +1,280 @@
+package tetris;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Loopback check for `SpectatorBroadcaster`.
+ * The bot plays on this thread and publishes every tick, while a pile of spectators
+ * on another thread rebuild the board from the frames they get.
+ * Every few seconds the game waits for them to catch up and checks every synced
+ * spectator's board is exactly the game's. One extra spectator never reads anything,
+ * and should get dropped without the game or anyone else noticing.
+ *
+ * Usage: SpectatorLoad [--spectators N] [--seconds S] [--rate TICKS_PER_SEC] [--width W] [--height H]
+ */
+public class SpectatorLoad {
+	static final int CHECK_EVERY = 2; // seconds
+	
+	int spectatorCount = 20;
+	int seconds = 10;
+	int rate = 6000; // 100x normal speed, so the slow spectator falls behind quickly
+	int width = Board.DEFAULT_WIDTH;
+	int height = Board.DEFAULT_HEIGHT;
+	
+	Selector selector;
+	Watcher[] watchers;
+	volatile boolean running = true;
+	
+	public static void main(String[] args) {
+		SpectatorLoad load = new SpectatorLoad();
+		try {
+			for(int i=0; i < args.length; ++i) {
+				switch(args[i]) {
+				case "--spectators":
+					load.spectatorCount = Integer.parseInt(args[++i]);
+					break;
+				case "--seconds":
+					load.seconds = Integer.parseInt(args[++i]);
+					break;
+				case "--rate":
+					load.rate = Integer.parseInt(args[++i]);
+					break;
+				case "--width":
+					load.width = Integer.parseInt(args[++i]);
+					break;
+				case "--height":
+					load.height = Integer.parseInt(args[++i]);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown argument " + args[i]);
+				}
+			}
+		} catch(Exception e) {
+			System.out.println(e.getMessage() + " while reading arguments");
+			System.out.println("Usage: SpectatorLoad [--spectators N] [--seconds S] [--rate TICKS_PER_SEC] [--width W] [--height H]");
+			return;
+		}
+		
+		try {
+			if(!load.run()) {
+				System.exit(1);
+			}
+		} catch(Exception e) {
+			System.out.println(e.getMessage() + " occured in SpectatorLoad");
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Returns false if any spectator ended up with the wrong board
+	 */
+	public boolean run() throws IOException, InterruptedException {
+		Game game = new Game(width, height);
+		Board board = game.getBoard();
+		board.setTracking(true);
+		Bot bot = new Bot(new Weights(), null);
+		
+		SpectatorBroadcaster broadcaster = new SpectatorBroadcaster(board.getWidth(), board.getHeight());
+		broadcaster.start(0);
+		int port = broadcaster.getPort();
+		System.out.println("Broadcasting on port " + port + " at " + rate + " ticks/sec");
+		
+		// The slow one has a tiny window and never reads, so the broadcaster's buffer for it fills up
+		SocketChannel slow = SocketChannel.open();
+		slow.socket().setReceiveBufferSize(1024);
+		slow.connect(new InetSocketAddress("127.0.0.1", port));
+		
+		selector = Selector.open();
+		watchers = new Watcher[spectatorCount];
+		for(int i=0; i < spectatorCount; ++i) {
+			watchers[i] = new Watcher(board.getWidth(), board.getHeight(), port);
+		}
+		Thread reader = new Thread(this::read, "spectator clients");
+		reader.start();
+		while(broadcaster.getSpectatorCount() < spectatorCount + 1) {
+			Thread.sleep(1);
+		}
+		
+		long seed = 1;
+		game.start(seed);
+		long tickNanos = 1_000_000_000L / rate;
+		long startTime = System.nanoTime();
+		long nextTick = startTime;
+		long nextCheck = startTime + CHECK_EVERY * 1_000_000_000L;
+		long endTime = startTime + seconds * 1_000_000_000L;
+		long ticks = 0;
+		int checks = 0;
+		int mismatches = 0;
+		while(true) {
+			long now = System.nanoTime();
+			if(now >= endTime || now >= nextCheck) {
+				// Stop and let everybody catch up before looking at their boards
+				mismatches += check(board, broadcaster);
+				++checks;
+				nextCheck = System.nanoTime() + CHECK_EVERY * 1_000_000_000L;
+				nextTick = System.nanoTime();
+				if(now >= endTime) {
+					break;
+				}
+			}
+			if(now < nextTick) {
+				continue; // busy wait, sleeping is far too coarse at these rates
+			}
+			nextTick += tickNanos;
+			
+			if(game.isOver()) {
+				game.start(++seed);
+			}
+			bot.play(game);
+			game.step();
+			broadcaster.publish(board, game.getTick());
+			++ticks;
+		}
+		double elapsed = (System.nanoTime() - startTime) * 1.0e-9;
+		
+		running = false;
+		selector.wakeup();
+		reader.join();
+		broadcaster.stop();
+		slow.close();
+		
+		long frames = 0;
+		long keyframes = 0;
+		long bytes = 0;
+		long keyframeBytes = 0;
+		for(Watcher watcher: watchers) {
+			frames += watcher.frames;
+			keyframes += watcher.keyframes;
+			bytes += watcher.bytes;
+			keyframeBytes += watcher.keyframeBytes;
+		}
+		System.out.printf("%d ticks in %.1fs (%.0f ticks/sec), %d of those skipped by the broadcaster%n",
+				ticks, elapsed, ticks / elapsed, broadcaster.framesSkipped);
+		System.out.printf("Per spectator: %.0f frames/sec, %.0f bytes/sec, %.1f bytes per delta, %.1f per keyframe%n",
+				frames / elapsed / spectatorCount, bytes / elapsed / spectatorCount,
+				(double) (bytes - keyframeBytes) / Math.max(1, frames - keyframes),
+				(double) keyframeBytes / Math.max(1, keyframes));
+		System.out.printf("Sending a keyframe every tick would have been %.0f bytes/sec%n",
+				keyframeBytes / (double) Math.max(1, keyframes) * ticks / elapsed);
+		System.out.printf("Spectators dropped: %d (the slow one should be)%n", broadcaster.dropped);
+		System.out.printf("Board checks: %d, mismatches: %d%n", checks, mismatches);
+		return mismatches == 0;
+	}
+	
+	/**
+	 * Waits for the spectators to get the newest frame and compares their boards with the game's.
+	 * Called on the game thread while it isn't stepping, so the board holds still.
+	 */
+	int check(Board board, SpectatorBroadcaster broadcaster) throws InterruptedException {
+		long tick = broadcaster.lastFrameTick;
+		long deadline = System.nanoTime() + 2_000_000_000L;
+		int mismatches = 0;
+		for(Watcher watcher: watchers) {
+			while(watcher.lastTick < tick && System.nanoTime() < deadline) {
+				Thread.sleep(1);
+			}
+			if(watcher.lastTick != tick || !Arrays.equals(watcher.cells, board.getCells())) {
+				++mismatches;
+			}
+		}
+		return mismatches;
+	}
+	
+	/**
+	 * Reads and decodes for every spectator until `running` goes false
+	 */
+	private void read() {
+		try {
+			while(running) {
+				selector.select(10);
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while(keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if(key.isValid() && key.isReadable()) {
+						((Watcher) key.attachment()).read();
+					}
+				}
+			}
+			for(Watcher watcher: watchers) {
+				watcher.channel.close();
+			}
+			selector.close();
+		} catch(IOException e) {
+			System.out.println(e.getMessage() + " in the spectator clients");
+		}
+	}
+	
+	/**
+	 * One spectator, rebuilding the board from what it's sent
+	 */
+	class Watcher {
+		SocketChannel channel;
+		ByteBuffer in;
+		byte[] cells;
+		volatile long lastTick = -1; // written after `cells`, so seeing it means the board is up to date
+		long frames;
+		long keyframes;
+		long bytes;
+		long keyframeBytes;
+		
+		Watcher(int width, int height, int port) throws IOException {
+			cells = new byte[width * height];
+			in = ByteBuffer.allocate(2 * (SpectatorBroadcaster.HEADER_SIZE + 5 + 4 * width * height));
+			channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", port));
+			channel.configureBlocking(false);
+			channel.register(selector, SelectionKey.OP_READ, this);
+		}
+		
+		void read() throws IOException {
+			if(channel.read(in) < 0) {
+				channel.close();
+				return;
+			}
+			in.flip();
+			while(in.remaining() >= 4 && in.remaining() >= 4 + in.getInt(in.position())) {
+				int length = in.getInt();
+				int end = in.position() + length;
+				decode(in);
+				in.position(end);
+				++frames;
+				bytes += 4 + length;
+			}
+			in.compact();
+		}
+		
+		void decode(ByteBuffer frame) {
+			byte type = frame.get();
+			long tick = frame.getLong();
+			if(type == SpectatorBroadcaster.KEYFRAME) {
+				int start = frame.position() - 13;
+				frame.getShort();
+				frame.getShort();
+				int i = 0;
+				while(i < cells.length) {
+					int run = SpectatorBroadcaster.getVarint(frame);
+					byte color = frame.get();
+					Arrays.fill(cells, i, i + run, color);
+					i += run;
+				}
+				++keyframes;
+				keyframeBytes += frame.position() - start;
+			}
+			else {
+				int count = SpectatorBroadcaster.getVarint(frame);
+				for(int n=0; n < count; ++n) {
+					int i = SpectatorBroadcaster.getVarint(frame);
+					cells[i] = frame.get();
+				}
+			}
+			lastTick = tick;
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package tetris;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import javafx.scene.text.Font;
+
+/**
+ * Gets the window up as quick as we can.
+ * `preload()` starts everything slow (images, fonts, the score store) at once
+ * on other threads before the window even exists, and whatever isn't needed
+ * for the first frame gets filled in when it's ready.
+ *
+ * -Dtetris.exitAfterFirstFrame=true quits once the first frame is drawn,
+ * which is how the build times startup and makes a class data sharing archive.
+ */
+public class Startup {
+	static CompletableFuture<Image> logo;
+	static CompletableFuture<Image> icon;
+	static CompletableFuture<Font> font;
+	static CompletableFuture<ScoreStore> scores;
+	
+	/**
+	 * Start loading everything. Call before the window is made.
+	 */
+	public static void preload() {
+		logo = CompletableFuture.supplyAsync(() -> new Image("file:logo.png"));
+		icon = CompletableFuture.supplyAsync(() -> new Image("file:icon.png"));
+		// The first Font loads the whole font system, so get that out of the way too
+		font = CompletableFuture.supplyAsync(() -> new Font("sans-serif", 32));
+		scores = CompletableFuture.supplyAsync(() -> {
+			try {
+				return ScoreStore.open("scores.bin", "scores.txt");
+			} catch(Exception e) {
+				System.out.println(e.getMessage() + " opening scores.bin");
+				return null;
+			}
+		});
+	}
+	
+	/**
+	 * Runs `then` on the FX thread once `future` is done, if it worked
+	 */
+	public static <T> void whenReady(CompletableFuture<T> future, Consumer<T> then) {
+		future.thenAccept((T value) -> {
+			if(value != null) {
+				Platform.runLater(() -> then.accept(value));
+			}
+		});
+	}
+	
+	/**
+	 * Prints how long it took from the JVM starting to the first frame being drawn
+	 */
+	public static void reportFirstFrame() {
+		new AnimationTimer() {
+			@Override
+			public void handle(long now) {
+				stop();
+				long millis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+				System.out.println("time to first frame: " + millis + "ms");
+				if(Boolean.getBoolean("tetris.exitAfterFirstFrame")) {
+					Platform.exit();
+				}
+			}
+		}.start();
+	}
+}
@@ -1,16 +1,15 @@
 package tetris;
 
-import java.io.File;
-import java.io.FileInputStream;
+import java.util.concurrent.CompletableFuture;
 
 import javafx.application.Application;
+import javafx.beans.property.ObjectProperty;
 import javafx.scene.Scene;
 import javafx.scene.control.Label;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Pane;
-import javafx.scene.media.AudioClip;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Font;
@@ -26,51 +25,154 @@ public class Tetris extends Application {
 	
 	public static Pane root;
 	public static Scene scene;
-	public static AudioClip musicClip;
+	public static AudioManager audio; // music and sound effects, off the FX thread
 	
-	public static Font font;
 	public static Color red;
 	public static Color blue;
 	public static Color grey;
 	
 	public static Label score;
 	public static Tile[][] tiles;
+	public static Board board;
 	public static CustomButton newGame;
 	public static CustomButton leaderboard;
 	
 	GridPane playArea;
+	CanvasPlayArea canvasPlayArea;
+	String renderer; // "tiles" (the default) or "canvas", from --renderer=
+	int boardWidth = Board.DEFAULT_WIDTH; // from --width=
+	int boardHeight = Board.DEFAULT_HEIGHT; // from --height=
+	// The play area is always 300x600 pixels, a board that isn't 10x20 gets smaller cells
+	public static final int PLAY_AREA_WIDTH = 300;
+	public static final int PLAY_AREA_HEIGHT = 600;
+	public static final int MAX_TILES = 2000; // past this many cells the tile renderer is just too slow
 	public static Leaderboard lb;
+	public static ScoreIndex scoreIndex; // top scores, so the leaderboard never re-reads the store
+	public static ScoreWriter scoreWriter; // appends to the store off the FX thread
 	public static boolean gameStarted;
+	public static Profiler profiler = new Profiler(); // how long each part of a pulse takes
+	public static Label profile; // P shows `profiler` over the controls
+	public static SpectatorBroadcaster spectators; // only with --spectate=PORT
 	
 	public static void main(String[] args) {
 		launch(args);
 	}
+	/**
+	 * Runs before `start`, so the slow loading is already going while the window gets made
+	 */
+	@Override
+	public void init() {
+		Startup.preload();
+	}
 	@Override
 	public void start(Stage stage) {
 		stage.setTitle("Tetris");
 		root = new Pane();
 		scene = new Scene(root, 600, 620);
 		stage.setScene(scene);
+		stage.setResizable(false);
+		// Up first, everything below lands in the same pulse as the first frame
 		stage.show();
+		Startup.reportFirstFrame();
 		
-		stage.setResizable(false);
-		stage.getIcons().add(new Image("file:icon.png"));
+		renderer = getParameters().getNamed().getOrDefault("renderer", "tiles");
+		try {
+			boardWidth = Integer.parseInt(getParameters().getNamed().getOrDefault("width", "" + Board.DEFAULT_WIDTH));
+			boardHeight = Integer.parseInt(getParameters().getNamed().getOrDefault("height", "" + Board.DEFAULT_HEIGHT));
+			new Board(boardWidth, boardHeight); // just to check it's allowed
+		} catch(Exception e) {
+			System.out.println(e.getMessage() + ", playing on 10x20");
+			boardWidth = Board.DEFAULT_WIDTH;
+			boardHeight = Board.DEFAULT_HEIGHT;
+		}
+		if(boardHeight > PLAY_AREA_HEIGHT) {
+			// Even at a pixel a cell it wouldn't fit, HeadlessRunner --height can go higher
+			System.out.println(boardHeight + " rows won't fit on screen, playing on " + PLAY_AREA_HEIGHT);
+			boardHeight = PLAY_AREA_HEIGHT;
+		}
+		if(renderer.equals("tiles") && boardWidth * boardHeight > MAX_TILES) {
+			renderer = "canvas";
+		}
+		String spectatePort = getParameters().getNamed().get("spectate");
+		
+		// Scores can be saved right away, they just queue up until the store is open and indexed
+		scoreIndex = new ScoreIndex(6);
+		CompletableFuture<ScoreStore> indexed = Startup.scores.thenApply((ScoreStore store) -> {
+			if(store != null) {
+				scoreIndex.load(store, store.size());
+			}
+			return store;
+		});
+		scoreWriter = new ScoreWriter(indexed, 64);
+		audio = new AudioManager();
 		
 		setStyles();
 		drawGUI();
 		
+		if(spectatePort != null) {
+			try {
+				spectators = new SpectatorBroadcaster(board.getWidth(), board.getHeight());
+				spectators.start(Integer.parseInt(spectatePort));
+				System.out.println("Spectators can watch on port " + spectators.getPort());
+			} catch(Exception e) {
+				System.out.println(e.getMessage() + " so nobody can spectate");
+				spectators = null;
+			}
+		}
+		
 		Controller controller = new Controller();
 		controller.start();
+		
+		Startup.whenReady(Startup.icon, (Image icon) -> {
+			stage.getIcons().add(icon);
+		});
+	}
+	
+	/**
+	 * Window closed, make sure every score got written
+	 */
+	@Override
+	public void stop() {
+		if(audio != null) {
+			audio.send(AudioManager.Command.STOP_MUSIC);
+		}
+		if(spectators != null) {
+			spectators.stop();
+		}
+		if(scoreWriter != null) {
+			scoreWriter.close(2000);
+		}
+		ScoreStore scoreStore = Startup.scores.getNow(null);
+		if(scoreStore != null) {
+			try {
+				scoreStore.close();
+			} catch(Exception e) {
+				System.out.println(e.getMessage() + " closing scores.bin");
+			}
+		}
 	}
 	
 	public void setStyles() {
 		root.setStyle("-fx-background-color: #751a9cff");
-		Tetris.font = new Font("sans-serif", 32);
 		Tetris.red = new Color(192.0/255, 0/255, 0/255, 1.0);
 		Tetris.blue = new Color(27.0/255, 26.0/255, 156.0/255, 1);
 		Tetris.grey = new Color(36.0/255, 28.0/255, 28.0/255, 1);
 	}
 	
+	/**
+	 * Gives `property` (a label's font) the game's font once `Startup` has loaded it,
+	 * until then it keeps the default
+	 */
+	public static void useFont(ObjectProperty<Font> property) {
+		Font loaded = Startup.font.getNow(null);
+		if(loaded != null) {
+			property.set(loaded);
+		}
+		else {
+			Startup.whenReady(Startup.font, property::set);
+		}
+	}
+	
 	public void drawGUI() {
 		lb = null;
 		gameStarted = false;
@@ -79,19 +181,16 @@ public class Tetris extends Application {
 		drawButtonArea();
 		drawControlsArea();
 		drawPlayArea();
+		drawProfile();
 	}
 	
 	public void drawLogo() {
 		// https://www.tutorialspoint.com/javafx/javafx_images.htm   (htm not html, idk why)
-		// Loading the file into a usable element (ImageView)
-		FileInputStream inputStream = null;
-		try {
-			inputStream = new FileInputStream("logo.png");
-		} catch(Exception e) {
-			System.out.println(e.getMessage() + " from drawLogo()");
-		}
-		Image image = new Image(inputStream);
-		ImageView imageView = new ImageView(image);
+		// The image shows up whenever `Startup` finishes loading it
+		ImageView imageView = new ImageView();
+		Startup.whenReady(Startup.logo, (Image image) -> {
+			imageView.setImage(image);
+		});
 		
 		// styling
 		imageView.setX(330);
@@ -131,7 +230,7 @@ public class Tetris extends Application {
 		
 		// 'Score: '
 		Label scoreLabel = new Label("Score:");
-		scoreLabel.setFont(font);
+		useFont(scoreLabel.fontProperty());
 		scoreLabel.setTextFill(Color.WHITE);
 		scoreLabel.setLayoutX(345);
 		scoreLabel.setLayoutY(160); // javafx is bad, -10 from inkscape y value
@@ -139,7 +238,7 @@ public class Tetris extends Application {
 		
 		// the score value
 		score = new Label("0");
-		score.setFont(font);
+		useFont(score.fontProperty());
 		score.setTextFill(Color.WHITE);
 		score.setLayoutX(450);
 		score.setLayoutY(160); // same as scoreLabel, javafx is bad with labels for some reason
@@ -173,7 +272,7 @@ public class Tetris extends Application {
 		
 		// Label
 		Label title = new Label("CONTROLS");
-		title.setFont(font);
+		useFont(title.fontProperty());
 		title.setTextFill(Color.WHITE);
 		title.setLayoutX(375);
 		title.setLayoutY(380); // javafx bad, -10 from inkscape y value
@@ -186,7 +285,7 @@ public class Tetris extends Application {
 				+ "W: rotate right\n"
 				+ "S: soft drop");
 		controls.setTextAlignment(TextAlignment.CENTER);
-		controls.setFont(font);
+		useFont(controls.fontProperty());
 		controls.setTextFill(Color.WHITE);
 		controls.setLayoutX(350);
 		controls.setLayoutY(420); // javafx bad
@@ -194,9 +293,60 @@ public class Tetris extends Application {
 	}
 	
 	/**
-	 * Draws the play space UI.
+	 * Sets up the (hidden) profile overlay, over the controls since those don't change
+	 */
+	public void drawProfile() {
+		profile = new Label();
+		profile.setFont(Font.font("monospace", 12));
+		profile.setTextFill(Color.WHITE);
+		profile.setStyle("-fx-background-color: #241c1cee; -fx-padding: 6");
+		profile.setLayoutX(330);
+		profile.setLayoutY(375);
+		profile.setPrefWidth(250);
+		profile.setVisible(false);
+		root.getChildren().add(profile);
+	}
+	
+	public static void toggleProfile() {
+		profile.setVisible(!profile.isVisible());
+		updateProfile();
+	}
+	
+	/**
+	 * Refreshes the profile overlay, if it's showing
+	 */
+	public static void updateProfile() {
+		if(profile.isVisible()) {
+			profile.setText(profiler.summary());
+		}
+	}
+	
+	/**
+	 * Pixels per cell, as big as fits in the play area (but no bigger than a 10x20 board's)
+	 */
+	public int cellSize() {
+		int size = Math.min(PLAY_AREA_WIDTH / boardWidth, PLAY_AREA_HEIGHT / boardHeight);
+		return Math.max(1, Math.min(Tile.SIZE, size));
+	}
+	
+	/**
+	 * Draws the play space UI with whichever renderer was picked.
 	 */
 	public void drawPlayArea() {
+		board = new Board(boardWidth, boardHeight);
+		
+		if(renderer.equals("canvas")) {
+			drawCanvasPlayArea();
+		}
+		else {
+			drawTilePlayArea();
+		}
+	}
+	
+	/**
+	 * Draws the play space as one `Tile` node per cell.
+	 */
+	public void drawTilePlayArea() {
 		playArea = new GridPane();
 		playArea.setStyle("-fx-background-color: black"); // never actually seen
 		playArea.setLayoutY(10);
@@ -205,26 +355,33 @@ public class Tetris extends Application {
 		playArea.setMinHeight(200);
 		root.getChildren().add(playArea);
 		
-		tiles = new Tile[10][20];
+		tiles = new Tile[board.getWidth()][board.getHeight()];
 		
-		for(int x=0; x < 10; ++x) {
-			for(int y=0; y < 20; ++y) {
-				Tile tile = new Tile(x, y);
+		int size = cellSize();
+		for(int x=0; x < board.getWidth(); ++x) {
+			for(int y=0; y < board.getHeight(); ++y) {
+				Tile tile = new Tile(x, y, size);
 				tiles[x][y] = tile;
 				playArea.add(tile, x, y);
 			}
 		}
+		
+		// The tiles just show whatever the board tells them to
+		board.setListener((int x, int y, byte color) -> {
+			tiles[x][y].paint(color);
+		});
 	}
 	
 	/**
-	 * Blacks out all tiles in the Play Area
+	 * Draws the play space onto a single canvas.
 	 */
-	public static void clearPlayArea() {
-		for(int x=0; x < 10; ++x) {
-			for(int y=0; y < 20; ++y) {
-				tiles[x][y].blackOut();
-			}
-		}
+	public void drawCanvasPlayArea() {
+		canvasPlayArea = new CanvasPlayArea(board.getWidth(), board.getHeight(), cellSize());
+		canvasPlayArea.setLayoutX(10);
+		canvasPlayArea.setLayoutY(10);
+		root.getChildren().add(canvasPlayArea);
+		
+		board.setListener(canvasPlayArea);
 	}
 	
 	/**
@@ -235,40 +392,6 @@ public class Tetris extends Application {
 		score.setText(Integer.toString(newScore));
 	}
 	
-	/**
-	 * Break the designated row.
-	 */
-	public static void breakRow(int y) {
-		for(int x=0; x < 10; ++x) {
-			tiles[x][y].whiteOut();
-		}
-	}
-	
-	/**
-	 * Resets row y to black.
-	 */
-	public static void resetRow(int y) {
-		for(int x=0; x < 10; ++x) {
-			tiles[x][y].blackOut();
-		}
-	}
-	
-	/**
-	 * Drop all rows above row y down by numRows
-	 */
-	public static void dropHangingRows(int yValue, int numRows) {
-		// Start at the row above the specified row and work upwards
-		for(int y=yValue-1; y > 0; --y) {
-			for(int x=0; x < 10; ++x) {
-				if(tiles[x][y].isTaken()) {
-					Color tileColor = tiles[x][y].getColor();
-					tiles[x][y].blackOut();
-					tiles[x][y+numRows].setColor(tileColor);
-				}
-			}
-		}
-	}
-	
 	/**
 	 * Makes a leaderboard if there isn't one-
 	 * Destroys the leaderboard if there is one.
@@ -278,8 +401,13 @@ public class Tetris extends Application {
 			if(gameStarted) {
 				Controller.driver.stop();
 			}
+			GameEvents.LeaderboardLoad event = new GameEvents.LeaderboardLoad();
+			event.begin();
 			lb = new Leaderboard();
 			root.getChildren().add(lb);
+			event.source = "open";
+			event.entries = lb.entries.size();
+			event.commit();
 		}
 		else {
 			root.getChildren().remove(lb);
@@ -292,19 +420,4 @@ public class Tetris extends Application {
 		}
 		
 	}
-	
-	/**
-	 * Starts the music!
-	 */
-	public static void startMusic() {
-		// https://upload.wikimedia.org/wikipedia/commons/e/e5/Tetris_theme.ogg.mp3
-		String filename = "Tetris_theme.mp3";
-		
-		File musicFile = new File(filename);
-		String uriString = musicFile.toURI().toString();
-		musicClip = new AudioClip(uriString);
-		musicClip.setVolume(0.1);
-		
-		musicClip.play();
-	}
 }
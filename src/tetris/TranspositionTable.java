@@ -0,0 +1,130 @@
+package tetris;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers scores by position hash, so the `Bot` doesn't evaluate a board it has already seen.
+ * Turning an S twice lands it on the same cells as not turning it at all,
+ * and after the first game most positions come round again anyway.
+ *
+ * Fixed size, nothing allocated after it's made. Entries live in buckets of four
+ * and a new one overwrites a slot in its bucket picked by its own hash bits,
+ * so what gets evicted is effectively random (good enough when nothing is worth more than anything else).
+ *
+ * Any number of threads can use it at once with no lock. Each entry is two longs,
+ * the score and key ^ score, so if two threads write the same slot at once
+ * and a reader gets half of each, the key won't check out and it's just a miss.
+ * (A score of exactly 0 never gets kept, its bits look like an empty slot.)
+ */
+public class TranspositionTable {
+	static final int WAYS = 4;
+	
+	final AtomicLongArray entries; // [2i] = key ^ score bits, [2i + 1] = score bits
+	final int bucketMask;
+	
+	final LongAdder lookups = new LongAdder();
+	final LongAdder hits = new LongAdder();
+	final LongAdder stores = new LongAdder();
+	final LongAdder evictions = new LongAdder();
+	
+	/**
+	 * @param bits the table holds 2^bits entries, 16 bytes each
+	 */
+	public TranspositionTable(int bits) {
+		bits = Math.max(bits, 2);
+		entries = new AtomicLongArray(2 << bits);
+		bucketMask = (1 << (bits - 2)) - 1;
+	}
+	
+	/**
+	 * The score stored for `key`, or NaN if there isn't one.
+	 * Doesn't count towards the metrics by itself, see `count()`.
+	 */
+	public double get(long key) {
+		int slot = (int) (key & bucketMask) * WAYS;
+		for(int way=0; way < WAYS; ++way) {
+			int i = 2 * (slot + way);
+			long value = entries.getOpaque(i + 1);
+			if((entries.getOpaque(i) ^ value) == key && value != 0) {
+				return Double.longBitsToDouble(value);
+			}
+		}
+		return Double.NaN;
+	}
+	
+	/**
+	 * Returns true if something else got evicted to make room
+	 */
+	public boolean put(long key, double score) {
+		long value = Double.doubleToRawLongBits(score);
+		int slot = (int) (key & bucketMask) * WAYS;
+		// Sits in an empty way if there is one, otherwise bumps one chosen by the key
+		int target = slot + (int) (key >>> 62);
+		for(int way=0; way < WAYS; ++way) {
+			if(entries.getOpaque(2 * (slot + way) + 1) == 0) {
+				target = slot + way;
+				break;
+			}
+		}
+		int i = 2 * target;
+		boolean evicted = entries.getOpaque(i + 1) != 0;
+		entries.setOpaque(i, key ^ value);
+		entries.setOpaque(i + 1, value);
+		return evicted;
+	}
+	
+	/**
+	 * Adds to the metrics. Searches keep their own counts and hand them over once they're done,
+	 * so threads aren't all bumping the same counters on every lookup.
+	 */
+	public void count(long lookupCount, long hitCount, long storeCount, long evictionCount) {
+		lookups.add(lookupCount);
+		hits.add(hitCount);
+		stores.add(storeCount);
+		evictions.add(evictionCount);
+	}
+	
+	/**
+	 * Forget everything (the scores only make sense for the weights they came from)
+	 */
+	public void clear() {
+		for(int i=0; i < entries.length(); ++i) {
+			entries.setOpaque(i, 0);
+		}
+	}
+	
+	public int capacity() {
+		return entries.length() / 2;
+	}
+	
+	public long memoryBytes() {
+		return 8L * entries.length();
+	}
+	
+	/**
+	 * Fraction of lookups that found a score
+	 */
+	public double hitRate() {
+		long total = lookups.sum();
+		return total == 0 ? 0 : (double) hits.sum() / total;
+	}
+	
+	public long getLookups() {
+		return lookups.sum();
+	}
+	public long getHits() {
+		return hits.sum();
+	}
+	public long getStores() {
+		return stores.sum();
+	}
+	public long getEvictions() {
+		return evictions.sum();
+	}
+	
+	public String summary() {
+		return String.format("table: %d entries (%.1f MB), %d lookups, %.1f%% hits, %d stores, %d evictions",
+				capacity(), memoryBytes() / 1048576.0, getLookups(), 100 * hitRate(), getStores(), getEvictions());
+	}
+}
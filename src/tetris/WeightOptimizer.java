@@ -0,0 +1,359 @@
+package tetris;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Tunes `Weights` with the genetic algorithm from the article the defaults came from
+ * (https://codemyroad.wordpress.com/2013/04/14/tetris-ai-the-near-perfect-player/).
+ *
+ * A candidate is a weight vector of length 1 (only its direction matters to the bot),
+ * and its fitness is the lines the bot clears with it over the same seeded games, each cut off
+ * after --blocks blocks. Every generation, 30% new candidates are bred: take the two fittest of a
+ * random 10% of the population, average them weighted by fitness, and now and then nudge one weight.
+ * They replace the weakest 30%.
+ *
+ * Every game of every new candidate is played in parallel across --threads threads (all cores by default).
+ * Seeds and the breeding are all derived from --seed, so the same arguments always give the same weights.
+ * After every generation the population goes to the checkpoint file and the best weights to the output
+ * file (weights.txt, which the game loads). Running it again picks up from the checkpoint.
+ *
+ * Usage: WeightOptimizer [--population N] [--games G] [--blocks B] [--generations N] [--seed S]
+ *                        [--threads T] [--checkpoint FILE] [--out FILE] [--fresh]
+ */
+public class WeightOptimizer {
+	static final double OFFSPRING = 0.3; // of the population, replaced each generation
+	static final double TOURNAMENT = 0.1; // of the population, picked to breed from
+	static final double MUTATION_CHANCE = 0.05;
+	static final double MUTATION_SIZE = 0.2;
+	
+	int populationSize = 100;
+	int games = 20;
+	int maxBlocks = 500;
+	int generations = 50;
+	long seed = 1;
+	int threads = Runtime.getRuntime().availableProcessors();
+	String checkpoint = "optimizer.checkpoint";
+	String out = Weights.FILE;
+	boolean fresh; // ignore the checkpoint
+	
+	int generation; // generations finished
+	double[][] population;
+	long[] fitness;
+	
+	public static void main(String[] args) {
+		WeightOptimizer optimizer = new WeightOptimizer();
+		try {
+			for(int i=0; i < args.length; ++i) {
+				switch(args[i]) {
+				case "--population":
+					optimizer.populationSize = Integer.parseInt(args[++i]);
+					break;
+				case "--games":
+					optimizer.games = Integer.parseInt(args[++i]);
+					break;
+				case "--blocks":
+					optimizer.maxBlocks = Integer.parseInt(args[++i]);
+					break;
+				case "--generations":
+					optimizer.generations = Integer.parseInt(args[++i]);
+					break;
+				case "--seed":
+					optimizer.seed = Long.parseLong(args[++i]);
+					break;
+				case "--threads":
+					optimizer.threads = Integer.parseInt(args[++i]);
+					break;
+				case "--checkpoint":
+					optimizer.checkpoint = args[++i];
+					break;
+				case "--out":
+					optimizer.out = args[++i];
+					break;
+				case "--fresh":
+					optimizer.fresh = true;
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown argument " + args[i]);
+				}
+			}
+		} catch(Exception e) {
+			System.out.println(e.getMessage() + " while reading arguments");
+			System.out.println("Usage: WeightOptimizer [--population N] [--games G] [--blocks B] [--generations N] [--seed S]"
+					+ " [--threads T] [--checkpoint FILE] [--out FILE] [--fresh]");
+			return;
+		}
+		
+		try {
+			optimizer.run();
+		} catch(Exception e) {
+			System.out.println(e.getMessage() + " occured in WeightOptimizer");
+		}
+	}
+	
+	public void run() throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		if(!fresh && new File(checkpoint).exists()) {
+			readCheckpoint();
+			System.out.printf("Resuming from %s after generation %d (population %d, %d games of %d blocks, seed %d)%n",
+					checkpoint, generation, populationSize, games, maxBlocks, seed);
+		}
+		else {
+			population = new double[populationSize][];
+			Random rand = random(-1);
+			for(int i=0; i < populationSize; ++i) {
+				population[i] = randomCandidate(rand);
+			}
+			fitness = new long[populationSize];
+			long startTime = System.nanoTime();
+			evaluate(pool, population, fitness);
+			System.out.printf("Starting population of %d scored in %.1fs, on %d threads%n",
+					populationSize, (System.nanoTime() - startTime) * 1.0e-9, threads);
+			save();
+		}
+		
+		System.out.printf("%10s %10s %10s %8s  %s%n", "generation", "best", "mean", "seconds", "best weights");
+		while(generation < generations) {
+			long startTime = System.nanoTime();
+			step(pool);
+			++generation;
+			save();
+			
+			int best = best();
+			System.out.printf("%10d %10.1f %10.1f %8.1f  %s%n", generation, (double) fitness[best] / games,
+					Arrays.stream(fitness).average().orElse(0) / games, (System.nanoTime() - startTime) * 1.0e-9,
+					Weights.fromArray(population[best]));
+		}
+		pool.shutdown();
+		System.out.println("Best weights are in " + out);
+	}
+	
+	/**
+	 * One generation: breed, score the children, swap them in for the weakest
+	 */
+	void step(ForkJoinPool pool) {
+		Random rand = random(generation);
+		int count = Math.max(1, (int) (populationSize * OFFSPRING));
+		int tournament = Math.max(2, (int) (populationSize * TOURNAMENT));
+		
+		double[][] children = new double[count][];
+		for(int c=0; c < count; ++c) {
+			// the two fittest of a random handful
+			int first = -1;
+			int second = -1;
+			for(int t=0; t < tournament; ++t) {
+				int i = rand.nextInt(populationSize);
+				if(first < 0 || fitness[i] > fitness[first]) {
+					second = first;
+					first = i;
+				}
+				else if(i != first && (second < 0 || fitness[i] > fitness[second])) {
+					second = i;
+				}
+			}
+			if(second < 0) {
+				second = first;
+			}
+			
+			// average, leaning towards whichever did better
+			double a = fitness[first];
+			double b = fitness[second];
+			if(a + b == 0) {
+				a = 1;
+				b = 1;
+			}
+			double[] child = new double[4];
+			for(int k=0; k < 4; ++k) {
+				child[k] = a * population[first][k] + b * population[second][k];
+			}
+			if(rand.nextDouble() < MUTATION_CHANCE) {
+				child[rand.nextInt(4)] += (rand.nextDouble() * 2 - 1) * MUTATION_SIZE;
+			}
+			children[c] = normalize(child);
+		}
+		
+		long[] childFitness = new long[count];
+		evaluate(pool, children, childFitness);
+		
+		// weakest out, ties go to the older candidate staying
+		Integer[] order = new Integer[populationSize];
+		for(int i=0; i < populationSize; ++i) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (Integer x, Integer y) -> Long.compare(fitness[x], fitness[y]));
+		for(int c=0; c < count && c < populationSize; ++c) {
+			population[order[c]] = children[c];
+			fitness[order[c]] = childFitness[c];
+		}
+	}
+	
+	/**
+	 * Plays every game of every candidate in parallel, fitness[i] is candidate i's total lines.
+	 * Candidate i's game j is always seed + j, whichever thread plays it.
+	 */
+	void evaluate(ForkJoinPool pool, double[][] candidates, long[] results) {
+		int[] lines = new int[candidates.length * games];
+		pool.invoke(new Games(candidates, lines, 0, lines.length));
+		for(int i=0; i < candidates.length; ++i) {
+			long total = 0;
+			for(int j=0; j < games; ++j) {
+				total += lines[i * games + j];
+			}
+			results[i] = total;
+		}
+	}
+	
+	/**
+	 * A range of (candidate, game) pairs, split until it's one candidate's worth or less
+	 */
+	class Games extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		double[][] candidates;
+		int[] lines;
+		int from;
+		int to;
+		
+		Games(double[][] candidates, int[] lines, int from, int to) {
+			this.candidates = candidates;
+			this.lines = lines;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if(to - from > 4) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Games(candidates, lines, from, middle), new Games(candidates, lines, middle, to));
+				return;
+			}
+			Game game = new Game();
+			for(int n=from; n < to; ++n) {
+				// no table, it'd only be scores for these weights anyway
+				Bot bot = new Bot(Weights.fromArray(candidates[n / games]), null, null);
+				game.start(seed + n % games);
+				while(!game.isOver() && game.getBlocks() <= maxBlocks) {
+					bot.play(game);
+					game.step();
+				}
+				lines[n] = game.getLines();
+			}
+		}
+	}
+	
+	int best() {
+		int best = 0;
+		for(int i=1; i < populationSize; ++i) {
+			if(fitness[i] > fitness[best]) {
+				best = i;
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 * Same generation, same random numbers, so a resumed run breeds exactly what the first one would have
+	 */
+	Random random(int forGeneration) {
+		return new Random(seed * 1_000_003L + forGeneration);
+	}
+	
+	static double[] randomCandidate(Random rand) {
+		double[] w = new double[4];
+		for(int k=0; k < 4; ++k) {
+			w[k] = rand.nextDouble() * 2 - 1;
+		}
+		return normalize(w);
+	}
+	
+	static double[] normalize(double[] w) {
+		double length = 0;
+		for(double v: w) {
+			length += v * v;
+		}
+		length = Math.sqrt(length);
+		if(length == 0) {
+			return w;
+		}
+		for(int k=0; k < w.length; ++k) {
+			w[k] /= length;
+		}
+		return w;
+	}
+	
+	/**
+	 * Writes the checkpoint (to a temp file first, so a crash mid-write doesn't lose the last one)
+	 * and the best weights so far
+	 */
+	void save() throws IOException {
+		File temp = new File(checkpoint + ".tmp");
+		try(PrintWriter writer = new PrintWriter(temp)) {
+			writer.println("# WeightOptimizer checkpoint");
+			writer.println("seed " + seed);
+			writer.println("games " + games);
+			writer.println("blocks " + maxBlocks);
+			writer.println("generation " + generation);
+			for(int i=0; i < populationSize; ++i) {
+				double[] w = population[i];
+				writer.println("candidate " + fitness[i] + " " + w[0] + " " + w[1] + " " + w[2] + " " + w[3]);
+			}
+		}
+		Files.move(temp.toPath(), Paths.get(checkpoint), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		Weights.fromArray(population[best()]).save(out);
+	}
+	
+	/**
+	 * Picks up the settings and population from the checkpoint.
+	 * Fitness only compares between the same games, so those come from the file, not the arguments.
+	 */
+	void readCheckpoint() throws IOException {
+		List<double[]> candidates = new ArrayList<>();
+		List<Long> scores = new ArrayList<>();
+		for(String line: Files.readAllLines(Paths.get(checkpoint))) {
+			String[] strings = line.trim().split("\\s+");
+			switch(strings[0]) {
+			case "seed":
+				seed = Long.parseLong(strings[1]);
+				break;
+			case "games":
+				games = Integer.parseInt(strings[1]);
+				break;
+			case "blocks":
+				maxBlocks = Integer.parseInt(strings[1]);
+				break;
+			case "generation":
+				generation = Integer.parseInt(strings[1]);
+				break;
+			case "candidate":
+				scores.add(Long.parseLong(strings[1]));
+				double[] w = new double[4];
+				for(int k=0; k < 4; ++k) {
+					w[k] = Double.parseDouble(strings[2 + k]);
+				}
+				candidates.add(w);
+				break;
+			default:
+				// comments and blank lines
+			}
+		}
+		if(candidates.isEmpty()) {
+			throw new IOException(checkpoint + " has no candidates in it");
+		}
+		populationSize = candidates.size();
+		population = candidates.toArray(new double[0][]);
+		fitness = new long[populationSize];
+		for(int i=0; i < populationSize; ++i) {
+			fitness[i] = scores.get(i);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package tetris;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Properties;
+
+/**
+ * How much the `Bot` cares about each feature of the board a placement leaves behind.
+ * Defaults come from https://codemyroad.wordpress.com/2013/04/14/tetris-ai-the-near-perfect-player/
+ * `WeightOptimizer` tunes new ones and saves them in a file like
+ *   height=-0.51
+ *   lines=0.76
+ *   holes=-0.36
+ *   bumpiness=-0.18
+ */
+public class Weights {
+	public static final String FILE = "weights.txt"; // where the game looks for tuned weights
+	
+	double height;    // per cell of aggregate column height
+	double lines;     // per line cleared
+	double holes;     // per empty cell with something above it
+	double bumpiness; // per cell of height difference between neighboring columns
+	
+	public Weights() {
+		this(-0.510066, 0.760666, -0.35663, -0.184483);
+	}
+	
+	public Weights(double height, double lines, double holes, double bumpiness) {
+		this.height = height;
+		this.lines = lines;
+		this.holes = holes;
+		this.bumpiness = bumpiness;
+	}
+	
+	/**
+	 * Reads weights saved by `save()`, anything missing keeps its default
+	 */
+	public static Weights load(String filename) throws IOException {
+		Properties properties = new Properties();
+		try(FileReader reader = new FileReader(filename)) {
+			properties.load(reader);
+		}
+		Weights defaults = new Weights();
+		return new Weights(
+				Double.parseDouble(properties.getProperty("height", "" + defaults.height)),
+				Double.parseDouble(properties.getProperty("lines", "" + defaults.lines)),
+				Double.parseDouble(properties.getProperty("holes", "" + defaults.holes)),
+				Double.parseDouble(properties.getProperty("bumpiness", "" + defaults.bumpiness)));
+	}
+	
+	/**
+	 * The weights in `filename` if it's there and readable, otherwise the defaults
+	 */
+	public static Weights loadOrDefault(String filename) {
+		if(!new File(filename).exists()) {
+			return new Weights();
+		}
+		try {
+			return load(filename);
+		} catch(Exception e) {
+			System.out.println(e.getMessage() + " reading " + filename + ", using the default weights");
+			return new Weights();
+		}
+	}
+	
+	public void save(String filename) throws IOException {
+		try(PrintWriter out = new PrintWriter(filename)) {
+			out.println("height=" + height);
+			out.println("lines=" + lines);
+			out.println("holes=" + holes);
+			out.println("bumpiness=" + bumpiness);
+		}
+	}
+	
+	/**
+	 * As a vector, in the order the constructor takes them
+	 */
+	public double[] toArray() {
+		return new double[] {height, lines, holes, bumpiness};
+	}
+	
+	public static Weights fromArray(double[] w) {
+		return new Weights(w[0], w[1], w[2], w[3]);
+	}
+	
+	/**
+	 * Higher is better
+	 */
+	public double evaluate(int aggregateHeight, int linesCleared, int holeCount, int bumps) {
+		return height * aggregateHeight
+				+ lines * linesCleared
+				+ holes * holeCount
+				+ bumpiness * bumps;
+	}
+	
+	@Override
+	public String toString() {
+		return "height=" + height + " lines=" + lines + " holes=" + holes + " bumpiness=" + bumpiness;
+	}
+}
@@ -0,0 +1,68 @@
+package tetris;
+
+/**
+ * Zobrist keys: a random-looking 64 bit number for every cell and block type.
+ * The hash of a position is all the keys of what's in it XORed together,
+ * so adding or removing one thing is a single XOR.
+ *
+ * Cell keys are worked out from the cell index instead of looked up,
+ * a table for a 64x32767 board would be 16MB.
+ */
+public class Zobrist {
+	// Split the key space so a cell never shares a key with a block type
+	static final long CELL_SEED = 0x5DEECE66DL;
+	static final long CURRENT_SEED = 0x2545F4914F6CDD1DL;
+	static final long NEXT_SEED = 0x9E3779B97F4A7C15L;
+	
+	static final long[] CURRENT = new long[BlockType.VALUES.length];
+	static final long[] NEXT = new long[BlockType.VALUES.length];
+	static {
+		for(int i=0; i < CURRENT.length; ++i) {
+			CURRENT[i] = mix(CURRENT_SEED + i);
+			NEXT[i] = mix(NEXT_SEED + i);
+		}
+	}
+	
+	/**
+	 * Key of the cell at index y * width + x being taken
+	 */
+	public static long cell(int index) {
+		return mix(CELL_SEED + index);
+	}
+	
+	/**
+	 * Keys of every taken cell in row y (bit x of `bits` is <x,y>)
+	 */
+	public static long row(int y, int width, long bits) {
+		long hash = 0;
+		int base = y * width;
+		while(bits != 0) {
+			hash ^= cell(base + Long.numberOfTrailingZeros(bits));
+			bits &= bits - 1;
+		}
+		return hash;
+	}
+	
+	/**
+	 * Keys for which block is falling and which is next (either can be null)
+	 */
+	public static long blocks(BlockType current, BlockType next) {
+		long hash = 0;
+		if(current != null) {
+			hash ^= CURRENT[current.ordinal()];
+		}
+		if(next != null) {
+			hash ^= NEXT[next.ordinal()];
+		}
+		return hash;
+	}
+	
+	/**
+	 * SplitMix64's finalizer, every bit of the input ends up affecting every bit of the output
+	 */
+	static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}